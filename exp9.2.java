@@ -1,14 +1,24 @@
 // Student.java
 package com.example.hibernate;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
+// Cached in the "student" region; size, TTL and the on/off switch are in hibernate.cfg.xml
 @Entity
 @Table(name = "students")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Student.CACHE_REGION)
 public class Student {
     
+    public static final String CACHE_REGION = "student";
+    
+    // Pooled sequence (table-backed on MySQL) instead of IDENTITY so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "student_seq", allocationSize = 50)
     private int id;
     
     @Column(name = "name")
@@ -64,110 +74,528 @@ package com.example.hibernate;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class StudentDao {
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_FETCH_SIZE = 500;
+    // Ids per IN list in bulk deletes; a power of two so full chunks need no IN clause padding
+    public static final int IN_LIST_SIZE = 512;
+    
+    private static final String SUMMARY_QUERY =
+            "SELECT new com.example.hibernate.StudentSummary(s.id, s.name, s.age) FROM Student s";
+    
     private final SessionFactory sessionFactory;
+    private final int batchSize;
+    private final int chunkSize;
+    private final int fetchSize;
+    // Session of the unit of work running on this thread, if any
+    private final ThreadLocal<Session> unitOfWork = new ThreadLocal<>();
     
     public StudentDao(SessionFactory sessionFactory) {
+        this(sessionFactory, DEFAULT_BATCH_SIZE, DEFAULT_CHUNK_SIZE, DEFAULT_FETCH_SIZE);
+    }
+    
+    // batchSize: JDBC batch size for bulk inserts; chunkSize: students per bulk insert transaction;
+    // fetchSize: rows per round trip for streaming reads
+    public StudentDao(SessionFactory sessionFactory, int batchSize, int chunkSize, int fetchSize) {
         this.sessionFactory = sessionFactory;
+        this.batchSize = Math.max(1, batchSize);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.fetchSize = Math.max(1, fetchSize);
     }
     
-    // Create
-    public void saveStudent(Student student) {
+    // Unit of work: every StudentDao call made by work on this thread shares one Session and one
+    // Transaction. Entities stay managed across calls, so repeated gets hit the first-level cache
+    // and changes are flushed once, at commit. The whole unit is rolled back and null returned if
+    // any call fails; nested calls join the outer unit. saveAll and the stream reads keep using
+    // their own StatelessSession.
+    public <T> T inUnitOfWork(Function<StudentDao, T> work) {
+        if (unitOfWork.get() != null) {
+            return work.apply(this);
+        }
+        
         Session session = sessionFactory.openSession();
         Transaction tx = null;
+        T result = null;
+        unitOfWork.set(session);
+        String outer = SlowQueryLog.enterOperation("inUnitOfWork");
         
         try {
             tx = session.beginTransaction();
-            session.save(student);
+            result = work.apply(this);
             tx.commit();
-            System.out.println("Student saved successfully.");
         } catch (Exception e) {
             if (tx != null) {
                 tx.rollback();
             }
             e.printStackTrace();
+            result = null;
         } finally {
+            SlowQueryLog.exitOperation(outer);
+            unitOfWork.remove();
             session.close();
         }
+        
+        return result;
     }
     
-    // Read
-    public Student getStudentById(int id) {
-        Session session = sessionFactory.openSession();
-        Student student = null;
+    // Create
+    public void saveStudent(Student student) {
+        if (write("saveStudent", session -> session.save(student) != null, false)) {
+            reportCommitted("Student saved successfully.");
+        }
+    }
+    
+    // Bulk create
+    public BulkInsertResult saveAll(Iterable<Student> students) {
+        return saveAll(students.iterator());
+    }
+    
+    // Students are pulled from the stream one chunk at a time; the caller still owns and closes it
+    public BulkInsertResult saveAll(Stream<Student> students) {
+        return saveAll(students.iterator());
+    }
+    
+    // One StatelessSession for the whole load: no persistence context to grow, inserts go out in
+    // JDBC batches, and every chunk is its own transaction. A failed chunk is rolled back and
+    // counted, and the load carries on with the next one.
+    private BulkInsertResult saveAll(Iterator<Student> students) {
+        BulkInsertResult result = new BulkInsertResult();
+        String outer = SlowQueryLog.enterOperation("saveAll");
+        StatelessSession session = sessionFactory.openStatelessSession();
         
         try {
-            student = session.get(Student.class, id);
-        } catch (Exception e) {
-            e.printStackTrace();
+            session.setJdbcBatchSize(batchSize);
+            List<Student> chunk = new ArrayList<>(chunkSize);
+            while (students.hasNext()) {
+                chunk.add(students.next());
+                if (chunk.size() == chunkSize || !students.hasNext()) {
+                    insertChunk(session, chunk, result);
+                    chunk.clear();
+                }
+            }
         } finally {
             session.close();
+            SlowQueryLog.exitOperation(outer);
         }
         
-        return student;
+        System.out.println("Students saved: " + result);
+        return result;
+    }
+    
+    private void insertChunk(StatelessSession session, List<Student> chunk, BulkInsertResult result) {
+        long start = System.nanoTime();
+        Transaction tx = null;
+        
+        try {
+            tx = session.beginTransaction();
+            for (Student student : chunk) {
+                session.insert(student);
+            }
+            tx.commit();
+            // Stateless inserts bypass the query cache's invalidation, so cached results would
+            // miss the new rows until they expire
+            sessionFactory.getCache().evictQueryRegions();
+            result.addChunk(chunk.size(), System.nanoTime() - start, true);
+        } catch (Exception e) {
+            if (tx != null) {
+                tx.rollback();
+            }
+            e.printStackTrace();
+            result.addChunk(chunk.size(), System.nanoTime() - start, false);
+        }
     }
     
-    // Read All
-    @SuppressWarnings("unchecked")
+    // Read
+    public Student getStudentById(int id) {
+        return read("getStudentById", session -> session.get(Student.class, id), null);
+    }
+    
+    // Read All; loads the whole table, so prefer the paged or streaming reads below for large tables.
+    // Empty, never null, on error. The list and page reads go through the query cache, which
+    // Hibernate invalidates whenever a write to the students table commits.
     public List<Student> getAllStudents() {
-        Session session = sessionFactory.openSession();
-        List<Student> students = null;
+        return read("getAllStudents", session -> session.createQuery("FROM Student s ORDER BY s.id", Student.class)
+                .setCacheable(true)
+                .list(), Collections.emptyList());
+    }
+    
+    // Read Page: keyset pagination on id. Pass 0 for the first page, then the id of the last student
+    // returned; an index range scan on the primary key however deep the page is.
+    public List<Student> getStudentsAfter(int afterId, int limit) {
+        return read("getStudentsAfter", session -> session
+                .createQuery("FROM Student s WHERE s.id > :afterId ORDER BY s.id", Student.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .setCacheable(true)
+                .list(), Collections.emptyList());
+    }
+    
+    // Read Page as projections: no entity instantiation and no dirty-check snapshots
+    public List<StudentSummary> getStudentSummariesAfter(int afterId, int limit) {
+        return read("getStudentSummariesAfter", session -> session
+                .createQuery(SUMMARY_QUERY + " WHERE s.id > :afterId ORDER BY s.id", StudentSummary.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .setCacheable(true)
+                .list(), Collections.emptyList());
+    }
+    
+    // Read Stream: scrolls the table in id order through a StatelessSession, fetchSize rows per
+    // round trip, so only the current rows are in memory. Close the stream (try-with-resources)
+    // to release the cursor and the connection; empty on error.
+    public Stream<Student> streamStudents() {
+        return stream("streamStudents", "FROM Student s ORDER BY s.id", Student.class);
+    }
+    
+    public Stream<StudentSummary> streamStudentSummaries() {
+        return stream("streamStudentSummaries", SUMMARY_QUERY + " ORDER BY s.id", StudentSummary.class);
+    }
+    
+    // Visits every student in id order; returns how many were visited
+    public long forEachStudent(Consumer<Student> action) {
+        long count = 0;
+        try (Stream<Student> students = streamStudents()) {
+            Iterator<Student> iterator = students.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    // Only the query itself is attributed to operation; later fetches belong to whoever iterates
+    private <T> Stream<T> stream(String operation, String hql, Class<T> type) {
+        String outer = SlowQueryLog.enterOperation(operation);
+        StatelessSession session = sessionFactory.openStatelessSession();
         
         try {
-            students = session.createQuery("FROM Student").list();
+            return session.createQuery(hql, type)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .stream()
+                    .onClose(session::close);
         } catch (Exception e) {
+            session.close();
             e.printStackTrace();
+            return Stream.empty();
         } finally {
-            session.close();
+            SlowQueryLog.exitOperation(outer);
         }
-        
-        return students;
     }
     
-    // Update
+    // Update; inside a unit of work a student loaded by it is already tracked, and a detached copy
+    // is merged onto the managed instance instead of clashing with it
     public void updateStudent(Student student) {
+        boolean updated = write("updateStudent", session -> {
+            if (!session.contains(student)) {
+                if (unitOfWork.get() != null) {
+                    session.merge(student);
+                } else {
+                    session.update(student);
+                }
+            }
+            return true;
+        }, false);
+        if (updated) {
+            reportCommitted("Student updated successfully.");
+        }
+    }
+    
+    // Delete; loads the student, usually from the second-level cache, and deletes the entity, so
+    // only its own cache entry is evicted. deleteById would evict the whole Student region.
+    public void deleteStudent(int id) {
+        boolean deleted = write("deleteStudent", session -> {
+            Student student = session.get(Student.class, id);
+            if (student == null) {
+                return false;
+            }
+            session.delete(student);
+            return true;
+        }, false);
+        if (deleted) {
+            reportCommitted("Student deleted successfully.");
+        }
+    }
+    
+    // Bulk operations run as DML statements without loading entities and return the affected row
+    // count, 0 on error. On commit Hibernate's bulk-operation cleanup evicts the Student region of
+    // the second-level cache and every cached query over the students table. Inside a unit of work,
+    // students it already loaded are not refreshed by them.
+    
+    public int deleteById(int id) {
+        return write("deleteById", session -> session.createQuery("DELETE FROM Student s WHERE s.id = :id")
+                .setParameter("id", id)
+                .executeUpdate(), 0);
+    }
+    
+    // One transaction; the ids go out IN_LIST_SIZE per statement
+    public int deleteAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Integer> remaining = new ArrayList<>(ids);
+        return write("deleteAllById", session -> {
+            int deleted = 0;
+            for (int from = 0; from < remaining.size(); from += IN_LIST_SIZE) {
+                List<Integer> chunk = remaining.subList(from, Math.min(from + IN_LIST_SIZE, remaining.size()));
+                deleted += session.createQuery("DELETE FROM Student s WHERE s.id IN (:ids)")
+                        .setParameterList("ids", chunk)
+                        .executeUpdate();
+            }
+            return deleted;
+        }, 0);
+    }
+    
+    public int deleteByAgeBetween(int minAge, int maxAge) {
+        return write("deleteByAgeBetween", session -> {
+            CriteriaBuilder cb = session.getCriteriaBuilder();
+            CriteriaDelete<Student> delete = cb.createCriteriaDelete(Student.class);
+            Root<Student> student = delete.from(Student.class);
+            delete.where(cb.between(student.get("age"), minAge, maxAge));
+            return session.createQuery(delete).executeUpdate();
+        }, 0);
+    }
+    
+    // UPDATE students SET age = age + years WHERE age BETWEEN minAge AND maxAge
+    public int incrementAgeByAgeBetween(int minAge, int maxAge, int years) {
+        return write("incrementAgeByAgeBetween", session -> {
+            CriteriaBuilder cb = session.getCriteriaBuilder();
+            CriteriaUpdate<Student> update = cb.createCriteriaUpdate(Student.class);
+            Root<Student> student = update.from(Student.class);
+            update.set(student.<Integer>get("age"), cb.sum(student.get("age"), years));
+            update.where(cb.between(student.get("age"), minAge, maxAge));
+            return session.createQuery(update).executeUpdate();
+        }, 0);
+    }
+    
+    // Runs work in the current unit of work, where failures propagate to inUnitOfWork, or else in
+    // a read-only session of its own: entities come back detached, so no dirty-check snapshots.
+    // Statements run meanwhile are logged under operation, the public method's name.
+    private <T> T read(String operation, Function<Session, T> work, T fallback) {
+        String outer = SlowQueryLog.enterOperation(operation);
+        Session current = unitOfWork.get();
+        if (current != null) {
+            try {
+                return work.apply(current);
+            } finally {
+                SlowQueryLog.exitOperation(outer);
+            }
+        }
+        
         Session session = sessionFactory.openSession();
-        Transaction tx = null;
+        T result = fallback;
         
         try {
-            tx = session.beginTransaction();
-            session.update(student);
-            tx.commit();
-            System.out.println("Student updated successfully.");
+            session.setDefaultReadOnly(true);
+            result = work.apply(session);
         } catch (Exception e) {
-            if (tx != null) {
-                tx.rollback();
-            }
             e.printStackTrace();
         } finally {
             session.close();
+            SlowQueryLog.exitOperation(outer);
         }
+        
+        return result;
     }
     
-    // Delete
-    public void deleteStudent(int id) {
+    // A standalone write has committed by the time it returns; inside a unit of work the message
+    // waits for the unit to commit, and is never printed if it rolls back
+    private void reportCommitted(String message) {
+        Session current = unitOfWork.get();
+        if (current == null) {
+            System.out.println(message);
+            return;
+        }
+        current.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    System.out.println(message);
+                }
+            }
+        });
+    }
+    
+    // Runs work in the current unit of work, or else in a session and transaction of its own; the
+    // flush at commit is logged under operation too. Inside a unit of work it happens at the unit's
+    // commit and is logged as inUnitOfWork.
+    private <T> T write(String operation, Function<Session, T> work, T fallback) {
+        String outer = SlowQueryLog.enterOperation(operation);
+        Session current = unitOfWork.get();
+        if (current != null) {
+            try {
+                return work.apply(current);
+            } finally {
+                SlowQueryLog.exitOperation(outer);
+            }
+        }
+        
         Session session = sessionFactory.openSession();
         Transaction tx = null;
+        T result = fallback;
         
         try {
             tx = session.beginTransaction();
-            Student student = session.get(Student.class, id);
-            if (student != null) {
-                session.delete(student);
-                System.out.println("Student deleted successfully.");
-            }
+            result = work.apply(session);
             tx.commit();
         } catch (Exception e) {
             if (tx != null) {
                 tx.rollback();
             }
             e.printStackTrace();
+            result = fallback;
         } finally {
             session.close();
+            SlowQueryLog.exitOperation(outer);
+        }
+        
+        return result;
+    }
+}
+
+// StudentSummary.java
+package com.example.hibernate;
+
+// Read-only id/name/age projection of Student, built directly from query rows
+public class StudentSummary {
+    private final int id;
+    private final String name;
+    private final int age;
+    
+    public StudentSummary(int id, String name, int age) {
+        this.id = id;
+        this.name = name;
+        this.age = age;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getAge() {
+        return age;
+    }
+    
+    @Override
+    public String toString() {
+        return "StudentSummary{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", age=" + age +
+                '}';
+    }
+}
+
+// BulkInsertResult.java
+package com.example.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of StudentDao.saveAll: row counts plus the size and duration of every chunk, in order
+public class BulkInsertResult {
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int inserted;
+    private int failed;
+    
+    void addChunk(int rows, long nanos, boolean committed) {
+        chunks.add(new Chunk(rows, nanos, committed));
+        if (committed) {
+            inserted += rows;
+        } else {
+            failed += rows;
+        }
+    }
+    
+    public int getInserted() {
+        return inserted;
+    }
+    
+    public int getFailed() {
+        return failed;
+    }
+    
+    public List<Chunk> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+    
+    public long getTotalMillis() {
+        long nanos = 0;
+        for (Chunk chunk : chunks) {
+            nanos += chunk.getNanos();
+        }
+        return nanos / 1_000_000;
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkInsertResult{" +
+                "inserted=" + inserted +
+                ", failed=" + failed +
+                ", chunks=" + chunks.size() +
+                ", totalMillis=" + getTotalMillis() +
+                '}';
+    }
+    
+    public static class Chunk {
+        private final int rows;
+        private final long nanos;
+        private final boolean committed;
+        
+        Chunk(int rows, long nanos, boolean committed) {
+            this.rows = rows;
+            this.nanos = nanos;
+            this.committed = committed;
+        }
+        
+        public int getRows() {
+            return rows;
+        }
+        
+        public long getNanos() {
+            return nanos;
+        }
+        
+        public boolean isCommitted() {
+            return committed;
+        }
+        
+        @Override
+        public String toString() {
+            return "Chunk{" +
+                    "rows=" + rows +
+                    ", millis=" + String.format("%.1f", nanos / 1e6) +
+                    ", committed=" + committed +
+                    '}';
         }
     }
 }
@@ -177,8 +605,14 @@ package com.example.hibernate;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 
 public class HibernateUtil {
+    // Hibernate's standard query cache region names
+    public static final String QUERY_CACHE_REGION = "default-query-results-region";
+    public static final String TIMESTAMPS_CACHE_REGION = "default-update-timestamps-region";
+    
     private static final SessionFactory sessionFactory = buildSessionFactory();
     
     private static SessionFactory buildSessionFactory() {
@@ -195,16 +629,439 @@ public class HibernateUtil {
         return sessionFactory;
     }
     
+    public static boolean isCacheEnabled() {
+        return sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    }
+    
+    public static boolean isQueryCacheEnabled() {
+        return isCacheEnabled() && sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled();
+    }
+    
+    // Cache statistics need hibernate.generate_statistics=true
+    public static boolean isStatisticsEnabled() {
+        return sessionFactory.getStatistics().isStatisticsEnabled();
+    }
+    
+    // Null when caching or statistics are off
+    public static CacheRegionStatistics getStudentCacheStatistics() {
+        return isCacheEnabled() && isStatisticsEnabled()
+                ? sessionFactory.getStatistics().getDomainDataRegionStatistics(Student.CACHE_REGION)
+                : null;
+    }
+    
+    public static CacheRegionStatistics getQueryCacheStatistics() {
+        return isQueryCacheEnabled() && isStatisticsEnabled()
+                ? sessionFactory.getStatistics().getQueryRegionStatistics(QUERY_CACHE_REGION)
+                : null;
+    }
+    
+    public static String getCacheStatistics() {
+        if (!isCacheEnabled()) {
+            return "Cache disabled";
+        }
+        if (!isStatisticsEnabled()) {
+            return "Cache enabled (query cache " + (isQueryCacheEnabled() ? "enabled" : "disabled")
+                    + "), statistics disabled: set hibernate.generate_statistics=true";
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        return "Student cache " + format(getStudentCacheStatistics()) +
+                "\nQuery cache " + (isQueryCacheEnabled() ? format(getQueryCacheStatistics()) : "disabled") +
+                "\nEntity loads from database: " + statistics.getEntityLoadCount() +
+                ", queries executed: " + statistics.getQueryExecutionCount();
+    }
+    
+    private static String format(CacheRegionStatistics region) {
+        if (region == null) {
+            return "{}";
+        }
+        return "{" +
+                "hits=" + region.getHitCount() +
+                ", misses=" + region.getMissCount() +
+                ", puts=" + region.getPutCount() +
+                '}';
+    }
+    
     public static void shutdown() {
         // Close caches and connection pools
         getSessionFactory().close();
     }
 }
 
+// SlowQueryLog.java
+package com.example.hibernate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Replacement for hibernate.show_sql: every JDBC statement is timed, but only statements slower than
+// the threshold, plus a sampled fraction of the rest, are printed, by a background thread so callers
+// never wait on stdout. Also keeps the topN slowest statements for the summary printed on close.
+public class SlowQueryLog implements Runnable {
+    
+    private static final String DAO_CLASS = StudentDao.class.getName();
+    // Public StudentDao method running on this thread, set by StudentDao around its work and commit
+    private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+    
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int topN;
+    private final BlockingQueue<Entry> queue;
+    private final PriorityQueue<Entry> slowest = new PriorityQueue<>(Comparator.comparingLong(Entry::getNanos));
+    private volatile long slowestFloorNanos;
+    private volatile boolean running = true;
+    private final Thread thread;
+    
+    public SlowQueryLog(long thresholdMs, double sampleRate, int topN, int queueSize) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, thresholdMs));
+        this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+        this.topN = Math.max(0, topN);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.thread = new Thread(this, "slow-query-log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+    
+    // Called on the executing thread right after the statement returns
+    public void record(String sql, long nanos, int bindCount, int batchSize) {
+        boolean isSlow = nanos >= thresholdNanos;
+        boolean isSampled = !isSlow && sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        boolean isTop = topN > 0 && nanos > slowestFloorNanos;
+        if (!isSlow && !isSampled && !isTop) {
+            return;
+        }
+        
+        // Only resolved for statements that are kept, so the stack walk stays off the fast path
+        Entry entry = new Entry(sql, nanos, bindCount, batchSize, findCaller(),
+                isSlow ? "SLOW" : isSampled ? "SAMPLE" : "TOP");
+        if (isTop) {
+            addSlowest(entry);
+        }
+        if (isSlow || isSampled) {
+            // A full queue drops the entry rather than blocking the statement
+            queue.offer(entry);
+        }
+    }
+    
+    private synchronized void addSlowest(Entry entry) {
+        slowest.add(entry);
+        if (slowest.size() > topN) {
+            slowest.poll();
+        }
+        if (slowest.size() == topN) {
+            slowestFloorNanos = slowest.peek().getNanos();
+        }
+    }
+    
+    // Names the StudentDao operation statements on this thread belong to, until exitOperation is
+    // called with the returned name of the operation it nests in
+    static String enterOperation(String operation) {
+        String outer = OPERATION.get();
+        OPERATION.set(operation);
+        return outer;
+    }
+    
+    static void exitOperation(String outer) {
+        if (outer == null) {
+            OPERATION.remove();
+        } else {
+            OPERATION.set(outer);
+        }
+    }
+    
+    // The StudentDao operation in progress, else the StudentDao method on the stack, else the
+    // nearest application frame
+    private static String findCaller() {
+        String operation = OPERATION.get();
+        if (operation != null) {
+            return "StudentDao." + operation;
+        }
+        return StackWalker.getInstance().walk(frames -> {
+            String nearest = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String className = frame.getClassName();
+                if (className.equals(DAO_CLASS)) {
+                    return "StudentDao." + methodName(frame);
+                }
+                if (nearest == null && className.startsWith("com.example.hibernate.")
+                        && !className.equals(SlowQueryLog.class.getName())
+                        && !className.startsWith(TimingConnectionProvider.class.getName())) {
+                    nearest = className.substring(className.lastIndexOf('.') + 1) + "." + methodName(frame);
+                }
+            }
+            return nearest == null ? "?" : nearest;
+        });
+    }
+    
+    // lambda$deleteById$0 -> deleteById
+    private static String methodName(StackWalker.StackFrame frame) {
+        String name = frame.getMethodName();
+        return name.startsWith("lambda$") ? name.substring(7, name.indexOf('$', 7)) : name;
+    }
+    
+    @Override
+    public void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    System.out.println(entry);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    // Drains what is queued, then prints the slowest statements seen
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (topN > 0) {
+            System.out.println("\n--- Slowest Statements ---");
+            for (Entry entry : getSlowest()) {
+                System.out.println(entry);
+            }
+        }
+    }
+    
+    // Slowest first
+    public synchronized List<Entry> getSlowest() {
+        List<Entry> entries = new ArrayList<>(slowest);
+        entries.sort(Comparator.comparingLong(Entry::getNanos).reversed());
+        return entries;
+    }
+    
+    public static class Entry {
+        private final String sql;
+        private final long nanos;
+        private final int bindCount;
+        private final int batchSize;
+        private final String caller;
+        private final String kind;
+        
+        Entry(String sql, long nanos, int bindCount, int batchSize, String caller, String kind) {
+            this.sql = sql;
+            this.nanos = nanos;
+            this.bindCount = bindCount;
+            this.batchSize = batchSize;
+            this.caller = caller;
+            this.kind = kind;
+        }
+        
+        public long getNanos() {
+            return nanos;
+        }
+        
+        @Override
+        public String toString() {
+            return kind + String.format(" %.3f ms", nanos / 1e6) +
+                    " [" + caller + "]" +
+                    " binds=" + bindCount +
+                    (batchSize > 0 ? " batch=" + batchSize : "") +
+                    ": " + sql;
+        }
+    }
+}
+
+// TimingConnectionProvider.java
+package com.example.hibernate;
+
+import org.hibernate.c3p0.internal.C3P0ConnectionProvider;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+// The c3p0 pool with every statement timed and handed to SlowQueryLog. Enabled through
+// hibernate.connection.provider_class; the slowquery.* properties in hibernate.cfg.xml tune it.
+public class TimingConnectionProvider extends C3P0ConnectionProvider {
+    
+    private SlowQueryLog log;
+    
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void configure(Map props) {
+        super.configure(props);
+        log = new SlowQueryLog(
+                ConfigurationHelper.getLong("slowquery.thresholdMs", props, 100),
+                Double.parseDouble(ConfigurationHelper.getString("slowquery.sampleRate", props, "0.0")),
+                ConfigurationHelper.getInt("slowquery.topN", props, 10),
+                ConfigurationHelper.getInt("slowquery.queueSize", props, 1000));
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof CallableStatement) {
+                return proxy(CallableStatement.class, result, new StatementHandler(log, (String) args[0]));
+            }
+            if (result instanceof PreparedStatement) {
+                return proxy(PreparedStatement.class, result, new StatementHandler(log, (String) args[0]));
+            }
+            if (result instanceof Statement) {
+                return proxy(Statement.class, result, new StatementHandler(log, null));
+            }
+            return result;
+        });
+    }
+    
+    @Override
+    public void stop() {
+        super.stop();
+        if (log != null) {
+            log.close();
+        }
+    }
+    
+    // Bind parameters are counted, never captured
+    private static class StatementHandler implements TargetHandler {
+        private final SlowQueryLog log;
+        private final String preparedSql;
+        private int bindCount;
+        private int batchBindCount;
+        private int batchSize;
+        
+        StatementHandler(SlowQueryLog log, String preparedSql) {
+            this.log = log;
+            this.preparedSql = preparedSql;
+        }
+        
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bindCount++;
+            } else if (name.equals("clearParameters")) {
+                bindCount = 0;
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                batchBindCount += bindCount;
+                bindCount = 0;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+                batchBindCount = 0;
+            } else if (name.startsWith("execute")) {
+                boolean batch = name.endsWith("Batch");
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+                int binds = batch ? batchBindCount : bindCount;
+                int size = batch ? batchSize : 0;
+                long start = System.nanoTime();
+                try {
+                    return TimingConnectionProvider.invoke(target, method, args);
+                } finally {
+                    log.record(sql, System.nanoTime() - start, binds, size);
+                    bindCount = 0;
+                    if (batch) {
+                        batchSize = 0;
+                        batchBindCount = 0;
+                    }
+                }
+            }
+            return TimingConnectionProvider.invoke(target, method, args);
+        }
+    }
+    
+    private interface TargetHandler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+    
+    private static <T> T proxy(Class<T> type, Object target, TargetHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
+
+// LocalCacheRegionFactory.java
+package com.example.hibernate;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+// JCache region factory over a local Ehcache manager built from the cache.* properties in
+// hibernate.cfg.xml. Regions are bounded on heap and evict entries once full; query results
+// expire after their TTL, while update timestamps never expire, as the query cache requires.
+public class LocalCacheRegionFactory extends JCacheRegionFactory {
+    
+    @Override
+    @SuppressWarnings("rawtypes")
+    protected CacheManager resolveCacheManager(SessionFactoryOptions settings, Map properties) {
+        CacheConfiguration<Object, Object> students = region(
+                ConfigurationHelper.getInt("cache.student.maxEntries", properties, 10000),
+                ConfigurationHelper.getInt("cache.student.ttlSeconds", properties, 300));
+        CacheConfiguration<Object, Object> queryResults = region(
+                ConfigurationHelper.getInt("cache.query.maxEntries", properties, 1000),
+                ConfigurationHelper.getInt("cache.query.ttlSeconds", properties, 300));
+        CacheConfiguration<Object, Object> timestamps = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(1000))
+                .withExpiry(ExpiryPolicyBuilder.noExpiration())
+                .build();
+        
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName());
+        return provider.getCacheManager(URI.create("urn:hibernate-crud:" + System.identityHashCode(this)),
+                ConfigurationBuilder.newConfigurationBuilder()
+                        .withCache(Student.CACHE_REGION, students)
+                        .withCache(HibernateUtil.QUERY_CACHE_REGION, queryResults)
+                        .withCache(HibernateUtil.TIMESTAMPS_CACHE_REGION, timestamps)
+                        .build());
+    }
+    
+    private static CacheConfiguration<Object, Object> region(long maxEntries, long ttlSeconds) {
+        return CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttlSeconds)))
+                .build();
+    }
+}
+
 // Main.java
 package com.example.hibernate;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class Main {
     public static void main(String[] args) {
@@ -226,18 +1083,32 @@ public class Main {
         for (Student student : students) {
             System.out.println(student);
         }
+        if (students.isEmpty()) {
+            System.out.println("No students found.");
+            HibernateUtil.shutdown();
+            return;
+        }
         
-        // Get one student
+        // Get one student and update it in one unit of work: a single session and connection,
+        // and the change is flushed once when the unit commits
         int firstStudentId = students.get(0).getId();
         System.out.println("\nGetting student with ID: " + firstStudentId);
-        Student retrievedStudent = studentDao.getStudentById(firstStudentId);
-        System.out.println("Retrieved: " + retrievedStudent);
-        
-        // Update operation
-        System.out.println("\n--- Update Operation ---");
-        retrievedStudent.setName("John Updated");
-        retrievedStudent.setAge(21);
-        studentDao.updateStudent(retrievedStudent);
+        Student retrievedStudent = studentDao.inUnitOfWork(dao -> {
+            Student student = dao.getStudentById(firstStudentId);
+            System.out.println("Retrieved: " + student);
+            if (student != null) {
+                // Update operation
+                System.out.println("\n--- Update Operation ---");
+                student.setName("John Updated");
+                student.setAge(21);
+                dao.updateStudent(student);
+            }
+            return student;
+        });
+        if (retrievedStudent == null) {
+            HibernateUtil.shutdown();
+            return;
+        }
         
         // Verify update
         Student updatedStudent = studentDao.getStudentById(firstStudentId);
@@ -254,6 +1125,62 @@ public class Main {
             System.out.println(student);
         }
         
+        // Bulk create operation
+        System.out.println("\n--- Bulk Create Operation ---");
+        List<Student> enrolments = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            enrolments.add(new Student("Enrolled Student " + i, 18 + i % 10));
+        }
+        BulkInsertResult result = studentDao.saveAll(enrolments);
+        for (BulkInsertResult.Chunk chunk : result.getChunks()) {
+            System.out.println(chunk);
+        }
+        
+        // Paged read operation
+        System.out.println("\n--- Paged Read Operation ---");
+        int pages = 0;
+        int afterId = 0;
+        List<StudentSummary> page = studentDao.getStudentSummariesAfter(afterId, 1000);
+        while (!page.isEmpty()) {
+            pages++;
+            afterId = page.get(page.size() - 1).getId();
+            page = studentDao.getStudentSummariesAfter(afterId, 1000);
+        }
+        System.out.println("Read " + pages + " pages, last ID: " + afterId);
+        
+        // Streaming read operation
+        System.out.println("\n--- Streaming Read Operation ---");
+        long[] totalAge = {0};
+        long streamed = studentDao.forEachStudent(student -> totalAge[0] += student.getAge());
+        System.out.println("Streamed " + streamed + " students, total age " + totalAge[0]);
+        try (Stream<StudentSummary> summaries = studentDao.streamStudentSummaries()) {
+            System.out.println("Students aged 19: " + summaries.filter(summary -> summary.getAge() == 19).count());
+        }
+        
+        // Bulk update and delete operations
+        System.out.println("\n--- Bulk Update/Delete Operations ---");
+        System.out.println("Aged 18-19 moved up a year: " + studentDao.incrementAgeByAgeBetween(18, 19, 1));
+        System.out.println("Aged 27 deleted: " + studentDao.deleteByAgeBetween(27, 27));
+        List<Integer> withdrawn = new ArrayList<>();
+        for (Student enrolment : enrolments.subList(0, 1200)) {
+            withdrawn.add(enrolment.getId());
+        }
+        System.out.println("Withdrawn by ID: " + studentDao.deleteAllById(withdrawn));
+        
+        // Repeated reads are served from the second-level cache
+        System.out.println("\n--- Cached Reads ---");
+        if (!students.isEmpty()) {
+            int cachedId = students.get(0).getId();
+            for (int i = 0; i < 5; i++) {
+                studentDao.getStudentById(cachedId);
+            }
+            System.out.println("Read student " + cachedId + " five times");
+        }
+        
+        // Cache statistics
+        System.out.println("\n--- Cache Statistics ---");
+        System.out.println(HibernateUtil.getCacheStatistics());
+        
         // Shutdown Hibernate
         HibernateUtil.shutdown();
     }
@@ -268,7 +1195,7 @@ public class Main {
     <session-factory>
         <!-- Database connection settings -->
         <property name="hibernate.connection.driver_class">com.mysql.cj.jdbc.Driver</property>
-        <property name="hibernate.connection.url">jdbc:mysql://localhost:3306/hibernate_db?createDatabaseIfNotExist=true&amp;useSSL=false</property>
+        <property name="hibernate.connection.url">jdbc:mysql://localhost:3306/hibernate_db?createDatabaseIfNotExist=true&amp;useSSL=false&amp;useCursorFetch=true</property>
         <property name="hibernate.connection.username">root</property>
         <property name="hibernate.connection.password">password</property>
         
@@ -281,9 +1208,31 @@ public class Main {
         <!-- SQL dialect -->
         <property name="hibernate.dialect">org.hibernate.dialect.MySQL8Dialect</property>
         
-        <!-- Echo all executed SQL to stdout -->
-        <property name="hibernate.show_sql">true</property>
-        <property name="hibernate.format_sql">true</property>
+        <!-- Log only slow or sampled statements, asynchronously, instead of echoing all SQL -->
+        <property name="hibernate.show_sql">false</property>
+        <property name="hibernate.format_sql">false</property>
+        <property name="hibernate.connection.provider_class">com.example.hibernate.TimingConnectionProvider</property>
+        <property name="slowquery.thresholdMs">100</property>
+        <property name="slowquery.sampleRate">0.0</property>
+        <property name="slowquery.topN">10</property>
+        <property name="slowquery.queueSize">1000</property>
+        
+        <!-- Pad IN lists to powers of two and bind criteria literals, so bulk statements reuse a few shapes -->
+        <property name="hibernate.query.in_clause_parameter_padding">true</property>
+        <property name="hibernate.criteria.literal_handling_mode">bind</property>
+        
+        <!-- Second-level and query cache; set both to false to switch caching off -->
+        <property name="hibernate.cache.use_second_level_cache">true</property>
+        <property name="hibernate.cache.use_query_cache">true</property>
+        <property name="hibernate.cache.region.factory_class">com.example.hibernate.LocalCacheRegionFactory</property>
+        <property name="hibernate.javax.cache.missing_cache_strategy">create-warn</property>
+        <property name="cache.student.maxEntries">10000</property>
+        <property name="cache.student.ttlSeconds">300</property>
+        <property name="cache.query.maxEntries">1000</property>
+        <property name="cache.query.ttlSeconds">300</property>
+        <property name="hibernate.generate_statistics">true</property>
+        <!-- Keep the statistics counters but skip the per-session metrics log line -->
+        <property name="hibernate.session.events.log">false</property>
         
         <!-- Drop and re-create the database schema on startup -->
         <property name="hibernate.hbm2ddl.auto">create</property>
@@ -309,6 +1258,7 @@ public class Main {
         <maven.compiler.target>11</maven.compiler.target>
         <hibernate.version>5.6.15.Final</hibernate.version>
         <mysql.version>8.0.32</mysql.version>
+        <ehcache.version>3.10.8</ehcache.version>
     </properties>
 
     <dependencies>
@@ -332,5 +1282,28 @@ public class Main {
             <artifactId>hibernate-c3p0</artifactId>
             <version>${hibernate.version}</version>
         </dependency>
+        
+        <!-- Second-level cache: JCache with Ehcache 3 -->
+        <dependency>
+            <groupId>org.hibernate</groupId>
+            <artifactId>hibernate-jcache</artifactId>
+            <version>${hibernate.version}</version>
+        </dependency>
+        <dependency>
+            <groupId>org.ehcache</groupId>
+            <artifactId>ehcache</artifactId>
+            <version>${ehcache.version}</version>
+            <!-- Caches are configured programmatically; JAXB is only needed for XML configuration -->
+            <exclusions>
+                <exclusion>
+                    <groupId>org.glassfish.jaxb</groupId>
+                    <artifactId>jaxb-runtime</artifactId>
+                </exclusion>
+                <exclusion>
+                    <groupId>javax.xml.bind</groupId>
+                    <artifactId>jaxb-api</artifactId>
+                </exclusion>
+            </exclusions>
+        </dependency>
     </dependencies>
 </project>
@@ -1,17 +1,29 @@
 // Account.java
 package com.example.banking.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
 @Table(name = "accounts")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Account.CACHE_REGION)
+@NaturalIdCache(region = Account.NATURAL_ID_CACHE_REGION)
 public class Account {
     
+    public static final String CACHE_REGION = "account";
+    public static final String NATURAL_ID_CACHE_REGION = "account-natural-id";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @NaturalId
     @Column(name = "account_number", nullable = false, unique = true)
     private String accountNumber;
     
@@ -19,12 +31,20 @@ public class Account {
     private String ownerName;
     
     @Column(nullable = false, precision = 19, scale = 2)
-    private BigDecimal balance;
+    @Convert(converter = MoneyConverter.class)
+    private Money balance;
+    
+    @Version
+    private Long version;
     
     public Account() {
     }
     
     public Account(String accountNumber, String ownerName, BigDecimal balance) {
+        this(accountNumber, ownerName, Money.of(balance));
+    }
+    
+    public Account(String accountNumber, String ownerName, Money balance) {
         this.accountNumber = accountNumber;
         this.ownerName = ownerName;
         this.balance = balance;
@@ -54,14 +74,22 @@ public class Account {
         this.ownerName = ownerName;
     }
     
-    public BigDecimal getBalance() {
+    public Money getBalance() {
         return balance;
     }
     
-    public void setBalance(BigDecimal balance) {
+    public void setBalance(Money balance) {
         this.balance = balance;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     @Override
     public String toString() {
         return "Account{" +
@@ -81,11 +109,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_timestamp_id", columnList = "timestamp, id"),
+        @Index(name = "idx_transactions_from_account_timestamp", columnList = "from_account, timestamp"),
+        @Index(name = "idx_transactions_to_account_timestamp", columnList = "to_account, timestamp"),
+        @Index(name = "idx_transactions_status_timestamp", columnList = "status, timestamp")
+})
 public class Transaction {
     
+    // Pooled sequence (table-backed on MySQL) instead of IDENTITY so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "from_account", nullable = false)
@@ -100,12 +135,18 @@ public class Transaction {
     @Column(nullable = false)
     private LocalDateTime timestamp;
     
+    // Stored as TINYINT codes; see migrate-transaction-status.sql for rows written as text
     @Column(nullable = false)
-    private String status;
+    @Convert(converter = TransactionStatusConverter.class)
+    private TransactionStatus status;
+    
+    @Column(name = "failure_reason")
+    @Convert(converter = FailureReasonConverter.class)
+    private FailureReason failureReason;
     
     public Transaction() {
         this.timestamp = LocalDateTime.now();
-        this.status = "PENDING";
+        this.status = TransactionStatus.PENDING;
     }
     
     public Transaction(String fromAccount, String toAccount, BigDecimal amount) {
@@ -113,7 +154,7 @@ public class Transaction {
         this.toAccount = toAccount;
         this.amount = amount;
         this.timestamp = LocalDateTime.now();
-        this.status = "PENDING";
+        this.status = TransactionStatus.PENDING;
     }
     
     public Long getId() {
@@ -156,14 +197,22 @@ public class Transaction {
         this.timestamp = timestamp;
     }
     
-    public String getStatus() {
+    public TransactionStatus getStatus() {
         return status;
     }
     
-    public void setStatus(String status) {
+    public void setStatus(TransactionStatus status) {
         this.status = status;
     }
     
+    public FailureReason getFailureReason() {
+        return failureReason;
+    }
+    
+    public void setFailureReason(FailureReason failureReason) {
+        this.failureReason = failureReason;
+    }
+    
     @Override
     public String toString() {
         return "Transaction{" +
@@ -172,245 +221,6875 @@ public class Transaction {
                 ", toAccount='" + toAccount + '\'' +
                 ", amount=" + amount +
                 ", timestamp=" + timestamp +
-                ", status='" + status + '\'' +
+                ", status=" + status +
+                ", failureReason=" + failureReason +
                 '}';
     }
 }
 
-// AppConfig.java
-package com.example.banking.config;
+// TransactionStatus.java
+package com.example.banking.entity;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.ComponentScan;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.PropertySource;
-import org.springframework.core.env.Environment;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
-import org.springframework.orm.hibernate5.HibernateTransactionManager;
-import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
-import org.springframework.transaction.annotation.EnableTransactionManagement;
+// Codes are persisted; never renumber them
+public enum TransactionStatus {
+    PENDING(0),
+    SUCCESS(1),
+    FAILED(2);
+    
+    private final byte code;
+    
+    TransactionStatus(int code) {
+        this.code = (byte) code;
+    }
+    
+    public byte getCode() {
+        return code;
+    }
+    
+    public static TransactionStatus fromCode(byte code) {
+        for (TransactionStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown transaction status code " + code);
+    }
+}
 
-import javax.sql.DataSource;
-import java.util.Properties;
+// FailureReason.java
+package com.example.banking.entity;
 
-@Configuration
-@EnableTransactionManagement
-@ComponentScan(basePackages = "com.example.banking")
-@PropertySource("classpath:database.properties")
-public class AppConfig {
+// Why a FAILED transaction failed; codes are persisted, never renumber them
+public enum FailureReason {
+    INSUFFICIENT_FUNDS(1),
+    ACCOUNT_NOT_FOUND(2),
+    SAME_ACCOUNT(3),
+    INVALID_AMOUNT(4),
+    SYSTEM_ERROR(5),
+    REJECTED(6);
     
-    @Autowired
-    private Environment environment;
+    private final byte code;
     
-    @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(environment.getRequiredProperty("jdbc.driverClassName"));
-        dataSource.setUrl(environment.getRequiredProperty("jdbc.url"));
-        dataSource.setUsername(environment.getRequiredProperty("jdbc.username"));
-        dataSource.setPassword(environment.getRequiredProperty("jdbc.password"));
-        return dataSource;
+    FailureReason(int code) {
+        this.code = (byte) code;
     }
     
-    @Bean
-    public LocalSessionFactoryBean sessionFactory() {
-        LocalSessionFactoryBean sessionFactory = new LocalSessionFactoryBean();
-        sessionFactory.setDataSource(dataSource());
-        sessionFactory.setPackagesToScan("com.example.banking.entity");
-        sessionFactory.setHibernateProperties(hibernateProperties());
-        return sessionFactory;
+    public byte getCode() {
+        return code;
     }
     
-    @Bean
-    public HibernateTransactionManager transactionManager() {
-        HibernateTransactionManager transactionManager = new HibernateTransactionManager();
-        transactionManager.setSessionFactory(sessionFactory().getObject());
-        return transactionManager;
+    public static FailureReason fromCode(byte code) {
+        for (FailureReason reason : values()) {
+            if (reason.code == code) {
+                return reason;
+            }
+        }
+        throw new IllegalArgumentException("Unknown failure reason code " + code);
+    }
+}
+
+// TransactionStatusConverter.java
+package com.example.banking.entity;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+@Converter
+public class TransactionStatusConverter implements AttributeConverter<TransactionStatus, Byte> {
+    
+    @Override
+    public Byte convertToDatabaseColumn(TransactionStatus status) {
+        return status == null ? null : status.getCode();
     }
     
-    private Properties hibernateProperties() {
-        Properties properties = new Properties();
-        properties.put("hibernate.dialect", environment.getRequiredProperty("hibernate.dialect"));
-        properties.put("hibernate.show_sql", environment.getRequiredProperty("hibernate.show_sql"));
-        properties.put("hibernate.format_sql", environment.getRequiredProperty("hibernate.format_sql"));
-        properties.put("hibernate.hbm2ddl.auto", environment.getRequiredProperty("hibernate.hbm2ddl.auto"));
-        return properties;
+    @Override
+    public TransactionStatus convertToEntityAttribute(Byte code) {
+        return code == null ? null : TransactionStatus.fromCode(code);
     }
 }
 
-// AccountRepository.java
-package com.example.banking.repository;
+// FailureReasonConverter.java
+package com.example.banking.entity;
 
-import com.example.banking.entity.Account;
-import org.hibernate.Session;
-import org.hibernate.SessionFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Repository;
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
 
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
-import java.util.List;
+@Converter
+public class FailureReasonConverter implements AttributeConverter<FailureReason, Byte> {
+    
+    @Override
+    public Byte convertToDatabaseColumn(FailureReason reason) {
+        return reason == null ? null : reason.getCode();
+    }
+    
+    @Override
+    public FailureReason convertToEntityAttribute(Byte code) {
+        return code == null ? null : FailureReason.fromCode(code);
+    }
+}
 
-@Repository
-public class AccountRepository {
+// Money.java
+package com.example.banking.entity;
+
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Amount of money as a long count of minor units (cents), matching the DECIMAL(19, 2) columns.
+// Arithmetic is overflow-checked and far cheaper than BigDecimal on the transfer path.
+// @Immutable lets Hibernate dirty-check it by equals() instead of deep copies; Serializable
+// because it is stored as is in second-level cache entries.
+@Immutable
+public final class Money implements Comparable<Money>, Serializable {
     
-    private final SessionFactory sessionFactory;
+    private static final long serialVersionUID = 1L;
     
-    @Autowired
-    public AccountRepository(SessionFactory sessionFactory) {
-        this.sessionFactory = sessionFactory;
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0L);
+    
+    private final long minorUnits;
+    
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
     }
     
-    public void save(Account account) {
-        Session session = sessionFactory.getCurrentSession();
-        session.saveOrUpdate(account);
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0L ? ZERO : new Money(minorUnits);
     }
     
-    public Account findById(Long id) {
-        Session session = sessionFactory.getCurrentSession();
-        return session.get(Account.class, id);
+    // Throws ArithmeticException for fractions of a cent or amounts outside the long range
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.movePointRight(SCALE).longValueExact());
     }
     
-    public Account findByAccountNumber(String accountNumber) {
-        Session session = sessionFactory.getCurrentSession();
-        CriteriaBuilder cb = session.getCriteriaBuilder();
-        CriteriaQuery<Account> cq = cb.createQuery(Account.class);
-        Root<Account> root = cq.from(Account.class);
-        cq.select(root).where(cb.equal(root.get("accountNumber"), accountNumber));
-        TypedQuery<Account> query = session.createQuery(cq);
-        return query.getSingleResult();
+    public long getMinorUnits() {
+        return minorUnits;
     }
     
-    public List<Account> findAll() {
-        Session session = sessionFactory.getCurrentSession();
-        CriteriaBuilder cb = session.getCriteriaBuilder();
-        CriteriaQuery<Account> cq = cb.createQuery(Account.class);
-        Root<Account> root = cq.from(Account.class);
-        cq.select(root);
-        TypedQuery<Account> query = session.createQuery(cq);
-        return query.getResultList();
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
     }
-}
-
-// TransactionRepository.java
-package com.example.banking.repository;
-
-import com.example.banking.entity.Transaction;
-import org.hibernate.Session;
-import org.hibernate.SessionFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Repository;
-
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
-import java.util.List;
-
-@Repository
-public class TransactionRepository {
     
-    private final SessionFactory sessionFactory;
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
     
-    @Autowired
-    public TransactionRepository(SessionFactory sessionFactory) {
-        this.sessionFactory = sessionFactory;
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
     }
     
-    public void save(Transaction transaction) {
-        Session session = sessionFactory.getCurrentSession();
-        session.saveOrUpdate(transaction);
+    public int signum() {
+        return Long.signum(minorUnits);
     }
     
-    public Transaction findById(Long id) {
-        Session session = sessionFactory.getCurrentSession();
-        return session.get(Transaction.class, id);
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
     }
     
-    public List<Transaction> findAll() {
-        Session session = sessionFactory.getCurrentSession();
-        CriteriaBuilder cb = session.getCriteriaBuilder();
-        CriteriaQuery<Transaction> cq = cb.createQuery(Transaction.class);
-        Root<Transaction> root = cq.from(Transaction.class);
-        cq.select(root).orderBy(cb.desc(root.get("timestamp")));
-        TypedQuery<Transaction> query = session.createQuery(cq);
-        return query.getResultList();
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
     }
-}
-
-// InsufficientFundsException.java
-package com.example.banking.exception;
-
-public class InsufficientFundsException extends Exception {
     
-    public InsufficientFundsException(String message) {
-        super(message);
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+    
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
     }
 }
 
-// AccountNotFoundException.java
-package com.example.banking.exception;
+// MoneyConverter.java
+package com.example.banking.entity;
 
-public class AccountNotFoundException extends Exception {
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.math.BigDecimal;
+
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
     
-    public AccountNotFoundException(String message) {
-        super(message);
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+    
+    @Override
+    public Money convertToEntityAttribute(BigDecimal value) {
+        return value == null ? null : Money.of(value);
     }
 }
 
-// BankingService.java
-package com.example.banking.service;
-
-import com.example.banking.entity.Account;
-import com.example.banking.entity.Transaction;
-import com.example.banking.exception.AccountNotFoundException;
-import com.example.banking.exception.InsufficientFundsException;
-import com.example.banking.repository.AccountRepository;
-import com.example.banking.repository.TransactionRepository;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+// TransferAudit.java
+package com.example.banking.entity;
 
+import javax.persistence.*;
 import java.math.BigDecimal;
-import java.util.List;
+import java.time.LocalDateTime;
 
-@Service
-public class BankingService {
+// One row per transferMoney attempt, written by AuditJournal outside the business transaction
+@Entity
+@Table(name = "transfer_audit", indexes = {
+        @Index(name = "idx_transfer_audit_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_transfer_audit_status_timestamp", columnList = "status, timestamp")
+})
+public class TransferAudit {
     
-    private final AccountRepository accountRepository;
-    private final TransactionRepository transactionRepository;
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transfer_audit_seq")
+    @SequenceGenerator(name = "transfer_audit_seq", sequenceName = "transfer_audit_seq", allocationSize = 50)
+    private Long id;
     
-    @Autowired
-    public BankingService(AccountRepository accountRepository, TransactionRepository transactionRepository) {
-        this.accountRepository = accountRepository;
-        this.transactionRepository = transactionRepository;
+    @Column(name = "from_account")
+    private String fromAccount;
+    
+    @Column(name = "to_account")
+    private String toAccount;
+    
+    @Column(precision = 19, scale = 2)
+    private BigDecimal amount;
+    
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+    
+    @Column(nullable = false)
+    @Convert(converter = TransactionStatusConverter.class)
+    private TransactionStatus status;
+    
+    @Column(name = "failure_reason")
+    @Convert(converter = FailureReasonConverter.class)
+    private FailureReason failureReason;
+    
+    @Column(name = "transaction_id")
+    private Long transactionId;
+    
+    public TransferAudit() {
     }
     
-    @Transactional
-    public void createAccount(Account account) {
-        accountRepository.save(account);
+    public TransferAudit(String fromAccount, String toAccount, BigDecimal amount, TransactionStatus status,
+                         FailureReason failureReason, Long transactionId) {
+        this.fromAccount = fromAccount;
+        this.toAccount = toAccount;
+        this.amount = amount;
+        this.timestamp = LocalDateTime.now();
+        this.status = status;
+        this.failureReason = failureReason;
+        this.transactionId = transactionId;
     }
     
-    @Transactional(readOnly = true)
-    public Account getAccountById(Long id) {
-        return accountRepository.findById(id);
+    public Long getId() {
+        return id;
     }
     
-    @Transactional(readOnly = true)
-    public Account getAccountByNumber(String accountNumber) throws AccountNotFoundException {
-        try {
-            return accountRepository.findByAccountNumber(accountNumber);
-        } catch (Exception e) {
-            throw new AccountNotFoundException("Account with number " + accountNumber + " not found");
-        }
+    public String getFromAccount() {
+        return fromAccount;
     }
     
-    @Transactional(readOnly = true)
-    public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+    public String getToAccount() {
+        return toAccount;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public TransactionStatus getStatus() {
+        return status;
+    }
+    
+    public FailureReason getFailureReason() {
+        return failureReason;
+    }
+    
+    public Long getTransactionId() {
+        return transactionId;
+    }
+    
+    @Override
+    public String toString() {
+        return "TransferAudit{" +
+                "id=" + id +
+                ", fromAccount='" + fromAccount + '\'' +
+                ", toAccount='" + toAccount + '\'' +
+                ", amount=" + amount +
+                ", timestamp=" + timestamp +
+                ", status=" + status +
+                ", failureReason=" + failureReason +
+                ", transactionId=" + transactionId +
+                '}';
+    }
+}
+
+// ArchivedTransaction.java
+package com.example.banking.entity;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Cold tier of Transaction: rows older than banking.archive.horizonDays, moved here by
+// TransactionArchiver with their original id
+@Entity
+@Table(name = "transactions_archive", indexes = {
+        @Index(name = "idx_transactions_archive_timestamp_id", columnList = "timestamp, id"),
+        @Index(name = "idx_transactions_archive_from_account_timestamp", columnList = "from_account, timestamp"),
+        @Index(name = "idx_transactions_archive_to_account_timestamp", columnList = "to_account, timestamp")
+})
+public class ArchivedTransaction {
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "from_account", nullable = false)
+    private String fromAccount;
+    
+    @Column(name = "to_account", nullable = false)
+    private String toAccount;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+    
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+    
+    @Column(nullable = false)
+    @Convert(converter = TransactionStatusConverter.class)
+    private TransactionStatus status;
+    
+    @Column(name = "failure_reason")
+    @Convert(converter = FailureReasonConverter.class)
+    private FailureReason failureReason;
+    
+    public ArchivedTransaction() {
+    }
+    
+    public ArchivedTransaction(Transaction transaction) {
+        this.id = transaction.getId();
+        this.fromAccount = transaction.getFromAccount();
+        this.toAccount = transaction.getToAccount();
+        this.amount = transaction.getAmount();
+        this.timestamp = transaction.getTimestamp();
+        this.status = transaction.getStatus();
+        this.failureReason = transaction.getFailureReason();
+    }
+    
+    // Detached Transaction with the same values, so both tiers can be returned together
+    public Transaction toTransaction() {
+        Transaction transaction = new Transaction(fromAccount, toAccount, amount);
+        transaction.setId(id);
+        transaction.setTimestamp(timestamp);
+        transaction.setStatus(status);
+        transaction.setFailureReason(failureReason);
+        return transaction;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getFromAccount() {
+        return fromAccount;
+    }
+    
+    public String getToAccount() {
+        return toAccount;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public TransactionStatus getStatus() {
+        return status;
+    }
+    
+    public FailureReason getFailureReason() {
+        return failureReason;
+    }
+    
+    @Override
+    public String toString() {
+        return "ArchivedTransaction{" +
+                "id=" + id +
+                ", fromAccount='" + fromAccount + '\'' +
+                ", toAccount='" + toAccount + '\'' +
+                ", amount=" + amount +
+                ", timestamp=" + timestamp +
+                ", status=" + status +
+                ", failureReason=" + failureReason +
+                '}';
+    }
+}
+
+// AccountDay.java
+package com.example.banking.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class AccountDay implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    @Column(name = "account_number", nullable = false)
+    private String accountNumber;
+    
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+    
+    public AccountDay() {
+    }
+    
+    public AccountDay(String accountNumber, LocalDate activityDate) {
+        this.accountNumber = accountNumber;
+        this.activityDate = activityDate;
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public LocalDate getActivityDate() {
+        return activityDate;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AccountDay)) {
+            return false;
+        }
+        AccountDay other = (AccountDay) o;
+        return Objects.equals(accountNumber, other.accountNumber) && Objects.equals(activityDate, other.activityDate);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountNumber, activityDate);
+    }
+    
+    @Override
+    public String toString() {
+        return accountNumber + "@" + activityDate;
+    }
+}
+
+// AccountDailyActivity.java
+package com.example.banking.entity;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+// Successful transfers per account and calendar day, over archived rows only. Statements over
+// the archive read these for whole days instead of scanning transactions_archive.
+@Entity
+@Table(name = "account_daily_activity")
+public class AccountDailyActivity {
+    
+    @EmbeddedId
+    private AccountDay id;
+    
+    @Column(name = "incoming_count", nullable = false)
+    private long incomingCount;
+    
+    @Column(name = "incoming_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal incomingTotal;
+    
+    @Column(name = "outgoing_count", nullable = false)
+    private long outgoingCount;
+    
+    @Column(name = "outgoing_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal outgoingTotal;
+    
+    public AccountDailyActivity() {
+    }
+    
+    public AccountDailyActivity(AccountDay id) {
+        this.id = id;
+        this.incomingTotal = BigDecimal.ZERO;
+        this.outgoingTotal = BigDecimal.ZERO;
+    }
+    
+    public void addIncoming(BigDecimal amount) {
+        incomingCount++;
+        incomingTotal = incomingTotal.add(amount);
+    }
+    
+    public void addOutgoing(BigDecimal amount) {
+        outgoingCount++;
+        outgoingTotal = outgoingTotal.add(amount);
+    }
+    
+    public void add(AccountDailyActivity other) {
+        incomingCount += other.incomingCount;
+        incomingTotal = incomingTotal.add(other.incomingTotal);
+        outgoingCount += other.outgoingCount;
+        outgoingTotal = outgoingTotal.add(other.outgoingTotal);
+    }
+    
+    public AccountDay getId() {
+        return id;
+    }
+    
+    public long getIncomingCount() {
+        return incomingCount;
+    }
+    
+    public BigDecimal getIncomingTotal() {
+        return incomingTotal;
+    }
+    
+    public long getOutgoingCount() {
+        return outgoingCount;
+    }
+    
+    public BigDecimal getOutgoingTotal() {
+        return outgoingTotal;
+    }
+    
+    @Override
+    public String toString() {
+        return "AccountDailyActivity{" +
+                "id=" + id +
+                ", incomingCount=" + incomingCount +
+                ", incomingTotal=" + incomingTotal +
+                ", outgoingCount=" + outgoingCount +
+                ", outgoingTotal=" + outgoingTotal +
+                '}';
+    }
+}
+
+// BalanceSnapshot.java
+package com.example.banking.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// An account's balance as of a transaction id: every successful transfer with id <= lastTransactionId
+// is included, none after it. Written by BalanceReconciler; one row per account, moved forward each run.
+@Entity
+@Table(name = "balance_snapshots")
+public class BalanceSnapshot {
+    
+    @Id
+    @Column(name = "account_number")
+    private String accountNumber;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private Money balance;
+    
+    @Column(name = "last_transaction_id", nullable = false)
+    private long lastTransactionId;
+    
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+    
+    public BalanceSnapshot() {
+    }
+    
+    public BalanceSnapshot(String accountNumber, Money balance, long lastTransactionId, LocalDateTime takenAt) {
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+        this.lastTransactionId = lastTransactionId;
+        this.takenAt = takenAt;
+    }
+    
+    public void moveTo(Money balance, long lastTransactionId, LocalDateTime takenAt) {
+        this.balance = balance;
+        this.lastTransactionId = lastTransactionId;
+        this.takenAt = takenAt;
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public Money getBalance() {
+        return balance;
+    }
+    
+    public long getLastTransactionId() {
+        return lastTransactionId;
+    }
+    
+    public LocalDateTime getTakenAt() {
+        return takenAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "BalanceSnapshot{" +
+                "accountNumber='" + accountNumber + '\'' +
+                ", balance=" + balance +
+                ", lastTransactionId=" + lastTransactionId +
+                ", takenAt=" + takenAt +
+                '}';
+    }
+}
+
+// LedgerCheckpoint.java
+package com.example.banking.entity;
+
+import javax.persistence.*;
+
+// Highest ledger journal sequence of a partition that has been written to the database
+@Entity
+@Table(name = "ledger_checkpoints")
+public class LedgerCheckpoint {
+    
+    // PARTITION is a reserved word in MySQL 8
+    @Id
+    @Column(name = "partition_index")
+    private Integer partition;
+    
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+    
+    public LedgerCheckpoint() {
+    }
+    
+    public LedgerCheckpoint(Integer partition, long lastSequence) {
+        this.partition = partition;
+        this.lastSequence = lastSequence;
+    }
+    
+    public Integer getPartition() {
+        return partition;
+    }
+    
+    public void setPartition(Integer partition) {
+        this.partition = partition;
+    }
+    
+    public long getLastSequence() {
+        return lastSequence;
+    }
+    
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+    
+    @Override
+    public String toString() {
+        return "LedgerCheckpoint{" +
+                "partition=" + partition +
+                ", lastSequence=" + lastSequence +
+                '}';
+    }
+}
+
+// AppConfig.java
+package com.example.banking.config;
+
+import com.example.banking.entity.Account;
+import com.example.banking.metrics.ConnectionPoolMetrics;
+import com.example.banking.metrics.MetricsRegistry;
+import com.example.banking.metrics.ServiceMetricsAdvisor;
+import com.example.banking.metrics.SlowQueryLog;
+import com.example.banking.metrics.StatementTimingDataSource;
+import com.example.banking.startup.StartupSchemaManagementTool;
+import com.example.banking.startup.StartupSessionFactoryBean;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.env.Environment;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.orm.hibernate5.HibernateTransactionManager;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.sql.DataSource;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Properties;
+
+@Configuration
+@EnableTransactionManagement
+@ComponentScan(basePackages = "com.example.banking")
+@PropertySource("classpath:database.properties")
+public class AppConfig {
+    
+    @Autowired
+    private Environment environment;
+    
+    // No-op unless the context was built by BankingContext
+    @Autowired
+    private ApplicationStartup applicationStartup;
+    
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("banking-pool");
+        config.setDriverClassName(environment.getRequiredProperty("jdbc.driverClassName"));
+        config.setJdbcUrl(environment.getRequiredProperty("jdbc.url"));
+        config.setUsername(environment.getRequiredProperty("jdbc.username"));
+        config.setPassword(environment.getRequiredProperty("jdbc.password"));
+        
+        // Pool sizing and connection lifecycle
+        config.setMinimumIdle(environment.getProperty("jdbc.pool.minIdle", Integer.class, 5));
+        config.setMaximumPoolSize(environment.getProperty("jdbc.pool.maxSize", Integer.class, 20));
+        config.setConnectionTimeout(environment.getProperty("jdbc.pool.acquireTimeoutMs", Long.class, 3000L));
+        config.setIdleTimeout(environment.getProperty("jdbc.pool.idleTimeoutMs", Long.class, 600000L));
+        config.setMaxLifetime(environment.getProperty("jdbc.pool.maxLifetimeMs", Long.class, 1800000L));
+        config.setLeakDetectionThreshold(environment.getProperty("jdbc.pool.leakDetectionThresholdMs", Long.class, 0L));
+        
+        // Prepared statement cache (driver side, per connection)
+        int statementCacheSize = environment.getProperty("jdbc.pool.statementCacheSize", Integer.class, 250);
+        if (statementCacheSize > 0 && config.getJdbcUrl().startsWith("jdbc:mysql:")) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit",
+                    environment.getProperty("jdbc.pool.statementCacheSqlLimit", "2048"));
+        }
+        if (config.getJdbcUrl().startsWith("jdbc:mysql:")) {
+            // Let the driver send batched inserts/updates as multi-row statements
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+            // Honour JDBC fetch sizes with a server-side cursor instead of buffering whole result sets
+            config.addDataSourceProperty("useCursorFetch", "true");
+        }
+        
+        config.setMetricsTrackerFactory(connectionPoolMetrics());
+        return new HikariDataSource(config);
+    }
+    
+    @Bean
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
+    }
+    
+    @Bean
+    public SlowQueryLog slowQueryLog() {
+        return new SlowQueryLog(bankingProperties());
+    }
+    
+    @Bean
+    public LocalSessionFactoryBean sessionFactory() {
+        LocalSessionFactoryBean sessionFactory = new StartupSessionFactoryBean(applicationStartup,
+                bankingProperties().isStartupBackgroundBootstrap());
+        // Statements are timed between Hibernate and the pool; with banking.sql.log.enabled=false
+        // Hibernate talks to the pool directly
+        SlowQueryLog slowQueryLog = slowQueryLog();
+        sessionFactory.setDataSource(slowQueryLog.isEnabled()
+                ? StatementTimingDataSource.wrap(dataSource(), slowQueryLog)
+                : dataSource());
+        sessionFactory.setPackagesToScan("com.example.banking.entity");
+        sessionFactory.setHibernateProperties(hibernateProperties());
+        return sessionFactory;
+    }
+    
+    @Bean
+    public HibernateTransactionManager transactionManager() {
+        HibernateTransactionManager transactionManager = new HibernateTransactionManager();
+        transactionManager.setSessionFactory(sessionFactory().getObject());
+        return transactionManager;
+    }
+    
+    // Local second-level cache regions for Account and its natural-id -> id cross reference
+    // (hibernate.cache.account.*). This is the inner layer: it serves session loads inside
+    // transactions. AccountCache (banking.cache.*) sits in front of BankingService reads and
+    // only falls through to a session, and so to these regions, on a miss.
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        long maxEntries = environment.getProperty("hibernate.cache.account.maxEntries", Long.class, 10000L);
+        long ttlSeconds = environment.getProperty("hibernate.cache.account.ttlSeconds", Long.class, 300L);
+        CacheConfiguration<Object, Object> accountCache = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttlSeconds)))
+                .build();
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName());
+        return provider.getCacheManager(URI.create("urn:banking:hibernate:" + System.identityHashCode(this)),
+                ConfigurationBuilder.newConfigurationBuilder()
+                        .withCache(Account.CACHE_REGION, accountCache)
+                        .withCache(Account.NATURAL_ID_CACHE_REGION, accountCache)
+                        .build());
+    }
+    
+    @Bean
+    public BankingProperties bankingProperties() {
+        return new BankingProperties(environment);
+    }
+    
+    // Infrastructure role: the auto-proxy creator behind @EnableTransactionManagement only
+    // applies infrastructure advisors, so this lands on the same proxy as @Transactional
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public ServiceMetricsAdvisor serviceMetricsAdvisor(MetricsRegistry metricsRegistry) {
+        return new ServiceMetricsAdvisor(metricsRegistry);
+    }
+    
+    private Properties hibernateProperties() {
+        Properties properties = new Properties();
+        properties.put("hibernate.dialect", environment.getRequiredProperty("hibernate.dialect"));
+        properties.put("hibernate.show_sql", environment.getRequiredProperty("hibernate.show_sql"));
+        properties.put("hibernate.format_sql", environment.getRequiredProperty("hibernate.format_sql"));
+        properties.put("hibernate.hbm2ddl.auto", environment.getRequiredProperty("hibernate.hbm2ddl.auto"));
+        properties.put("hibernate.schema_management_tool", new StartupSchemaManagementTool(applicationStartup));
+        // Flush row updates in primary key order so concurrent flushes lock rows in the same order
+        properties.put("hibernate.order_updates", "true");
+        properties.put("hibernate.order_inserts", "true");
+        properties.put("hibernate.jdbc.batch_size", environment.getProperty("hibernate.jdbc.batch_size", "50"));
+        properties.put("hibernate.query.in_clause_parameter_padding", "true");
+        
+        // Second-level cache and statistics
+        String useSecondLevelCache = environment.getProperty("hibernate.cache.use_second_level_cache", "true");
+        properties.put("hibernate.cache.use_second_level_cache", useSecondLevelCache);
+        if (Boolean.parseBoolean(useSecondLevelCache)) {
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager());
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "create-warn");
+        }
+        properties.put("hibernate.generate_statistics", environment.getProperty("hibernate.generate_statistics", "true"));
+        // Keep the statistics counters but skip the per-session metrics log line
+        properties.put("hibernate.session.events.log", "false");
+        return properties;
+    }
+}
+
+// BankingProperties.java
+package com.example.banking.config;
+
+import com.example.banking.audit.AuditOverflowPolicy;
+import com.example.banking.service.AsyncAdmissionPolicy;
+import com.example.banking.service.AsyncExecutorMode;
+import com.example.banking.service.LockingStrategy;
+import org.springframework.core.env.Environment;
+
+public class BankingProperties {
+    
+    private final LockingStrategy transferLockingStrategy;
+    private final int transferMaxAttempts;
+    private final long transferBackoffInitialMs;
+    private final long transferBackoffMaxMs;
+    private final int batchChunkSize;
+    private final int historyMaxPageSize;
+    private final int historyFetchSize;
+    private final boolean ledgerEnabled;
+    private final int ledgerPartitions;
+    private final int ledgerRingBufferSize;
+    private final long ledgerSubmitTimeoutMs;
+    private final String ledgerJournalDir;
+    private final boolean ledgerJournalFsync;
+    private final long ledgerJournalSegmentBytes;
+    private final int ledgerWriteBehindBatchSize;
+    private final int ledgerWriteBehindQueueSize;
+    private final long ledgerWriteBehindMaxDelayMs;
+    private final boolean auditEnabled;
+    private final int auditQueueSize;
+    private final int auditBatchSize;
+    private final long auditMaxDelayMs;
+    private final AuditOverflowPolicy auditOverflowPolicy;
+    private final long auditBlockTimeoutMs;
+    private final boolean metricsLogEnabled;
+    private final long metricsLogIntervalSeconds;
+    private final boolean metricsJmxEnabled;
+    private final String metricsJmxObjectName;
+    private final AsyncExecutorMode asyncExecutorMode;
+    private final int asyncMaxInFlight;
+    private final AsyncAdmissionPolicy asyncAdmissionPolicy;
+    private final int asyncQueueSize;
+    private final long asyncShutdownTimeoutMs;
+    private final boolean cacheEnabled;
+    private final long cacheMaxEntries;
+    private final long cacheTtlSeconds;
+    private final boolean archiveEnabled;
+    private final int archiveHorizonDays;
+    private final int archiveChunkSize;
+    private final long archiveIntervalMinutes;
+    private final boolean snapshotEnabled;
+    private final long snapshotIntervalMinutes;
+    private final long snapshotSettleSeconds;
+    private final int reconcilePartitions;
+    private final int reconcileParallelism;
+    private final int reconcilePageSize;
+    private final boolean sqlLogEnabled;
+    private final long sqlSlowThresholdMs;
+    private final double sqlSampleRate;
+    private final int sqlQueueSize;
+    private final int sqlTopN;
+    private final boolean startupBackgroundBootstrap;
+    private final boolean startupReportEnabled;
+    private final int startupReportTopN;
+    
+    public BankingProperties(Environment environment) {
+        this.transferLockingStrategy = LockingStrategy.valueOf(
+                environment.getProperty("banking.transfer.locking", "PESSIMISTIC").trim().toUpperCase());
+        this.transferMaxAttempts = environment.getProperty("banking.transfer.maxAttempts", Integer.class, 5);
+        this.transferBackoffInitialMs = environment.getProperty("banking.transfer.backoffInitialMs", Long.class, 10L);
+        this.transferBackoffMaxMs = environment.getProperty("banking.transfer.backoffMaxMs", Long.class, 200L);
+        this.batchChunkSize = environment.getProperty("banking.batch.chunkSize", Integer.class, 500);
+        this.historyMaxPageSize = environment.getProperty("banking.history.maxPageSize", Integer.class, 500);
+        this.historyFetchSize = environment.getProperty("banking.history.fetchSize", Integer.class, 500);
+        this.ledgerEnabled = environment.getProperty("banking.ledger.enabled", Boolean.class, false);
+        this.ledgerPartitions = environment.getProperty("banking.ledger.partitions", Integer.class, 4);
+        this.ledgerRingBufferSize = environment.getProperty("banking.ledger.ringBufferSize", Integer.class, 8192);
+        this.ledgerSubmitTimeoutMs = environment.getProperty("banking.ledger.submitTimeoutMs", Long.class, 1000L);
+        this.ledgerJournalDir = environment.getProperty("banking.ledger.journalDir", "ledger-journal");
+        this.ledgerJournalFsync = environment.getProperty("banking.ledger.journalFsync", Boolean.class, true);
+        this.ledgerJournalSegmentBytes = environment.getProperty(
+                "banking.ledger.journalSegmentBytes", Long.class, 64L * 1024 * 1024);
+        this.ledgerWriteBehindBatchSize = environment.getProperty(
+                "banking.ledger.writeBehindBatchSize", Integer.class, 500);
+        this.ledgerWriteBehindQueueSize = environment.getProperty(
+                "banking.ledger.writeBehindQueueSize", Integer.class, 65536);
+        this.ledgerWriteBehindMaxDelayMs = environment.getProperty(
+                "banking.ledger.writeBehindMaxDelayMs", Long.class, 50L);
+        this.auditEnabled = environment.getProperty("banking.audit.enabled", Boolean.class, true);
+        this.auditQueueSize = environment.getProperty("banking.audit.queueSize", Integer.class, 10000);
+        this.auditBatchSize = environment.getProperty("banking.audit.batchSize", Integer.class, 500);
+        this.auditMaxDelayMs = environment.getProperty("banking.audit.maxDelayMs", Long.class, 100L);
+        this.auditOverflowPolicy = AuditOverflowPolicy.valueOf(
+                environment.getProperty("banking.audit.overflow", "DROP").trim().toUpperCase());
+        this.auditBlockTimeoutMs = environment.getProperty("banking.audit.blockTimeoutMs", Long.class, 50L);
+        this.metricsLogEnabled = environment.getProperty("banking.metrics.log.enabled", Boolean.class, true);
+        this.metricsLogIntervalSeconds = environment.getProperty(
+                "banking.metrics.log.intervalSeconds", Long.class, 60L);
+        this.metricsJmxEnabled = environment.getProperty("banking.metrics.jmx.enabled", Boolean.class, true);
+        this.metricsJmxObjectName = environment.getProperty(
+                "banking.metrics.jmx.objectName", "com.example.banking:type=Metrics");
+        this.asyncExecutorMode = AsyncExecutorMode.valueOf(
+                environment.getProperty("banking.async.executor", "PLATFORM").trim().toUpperCase());
+        // One running call per pooled connection unless told otherwise
+        this.asyncMaxInFlight = environment.getProperty("banking.async.maxInFlight", Integer.class,
+                environment.getProperty("jdbc.pool.maxSize", Integer.class, 20));
+        this.asyncAdmissionPolicy = AsyncAdmissionPolicy.valueOf(
+                environment.getProperty("banking.async.admission", "QUEUE").trim().toUpperCase());
+        this.asyncQueueSize = environment.getProperty("banking.async.queueSize", Integer.class, 1000);
+        this.asyncShutdownTimeoutMs = environment.getProperty("banking.async.shutdownTimeoutMs", Long.class, 30000L);
+        this.cacheEnabled = environment.getProperty("banking.cache.enabled", Boolean.class, true);
+        this.cacheMaxEntries = environment.getProperty("banking.cache.maxEntries", Long.class, 10000L);
+        this.cacheTtlSeconds = environment.getProperty("banking.cache.ttlSeconds", Long.class, 30L);
+        this.archiveEnabled = environment.getProperty("banking.archive.enabled", Boolean.class, false);
+        this.archiveHorizonDays = environment.getProperty("banking.archive.horizonDays", Integer.class, 90);
+        this.archiveChunkSize = environment.getProperty("banking.archive.chunkSize", Integer.class, 1000);
+        this.archiveIntervalMinutes = environment.getProperty("banking.archive.intervalMinutes", Long.class, 60L);
+        this.snapshotEnabled = environment.getProperty("banking.snapshot.enabled", Boolean.class, false);
+        this.snapshotIntervalMinutes = environment.getProperty("banking.snapshot.intervalMinutes", Long.class, 1440L);
+        this.snapshotSettleSeconds = environment.getProperty("banking.snapshot.settleSeconds", Long.class, 60L);
+        this.reconcilePartitions = environment.getProperty("banking.reconcile.partitions", Integer.class, 16);
+        this.reconcileParallelism = environment.getProperty("banking.reconcile.parallelism", Integer.class, 4);
+        this.reconcilePageSize = environment.getProperty("banking.reconcile.pageSize", Integer.class, 1000);
+        this.sqlLogEnabled = environment.getProperty("banking.sql.log.enabled", Boolean.class, true);
+        this.sqlSlowThresholdMs = environment.getProperty("banking.sql.slowThresholdMs", Long.class, 100L);
+        this.sqlSampleRate = environment.getProperty("banking.sql.sampleRate", Double.class, 0.0);
+        this.sqlQueueSize = environment.getProperty("banking.sql.queueSize", Integer.class, 1000);
+        this.sqlTopN = environment.getProperty("banking.sql.topN", Integer.class, 10);
+        this.startupBackgroundBootstrap = environment.getProperty("banking.startup.backgroundBootstrap", Boolean.class, true);
+        this.startupReportEnabled = environment.getProperty("banking.startup.report.enabled", Boolean.class, true);
+        this.startupReportTopN = environment.getProperty("banking.startup.report.topN", Integer.class, 10);
+    }
+    
+    public LockingStrategy getTransferLockingStrategy() {
+        return transferLockingStrategy;
+    }
+    
+    public int getTransferMaxAttempts() {
+        return transferMaxAttempts;
+    }
+    
+    public long getTransferBackoffInitialMs() {
+        return transferBackoffInitialMs;
+    }
+    
+    public long getTransferBackoffMaxMs() {
+        return transferBackoffMaxMs;
+    }
+    
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+    
+    public int getHistoryMaxPageSize() {
+        return historyMaxPageSize;
+    }
+    
+    public int getHistoryFetchSize() {
+        return historyFetchSize;
+    }
+    
+    public boolean isLedgerEnabled() {
+        return ledgerEnabled;
+    }
+    
+    public int getLedgerPartitions() {
+        return ledgerPartitions;
+    }
+    
+    public int getLedgerRingBufferSize() {
+        return ledgerRingBufferSize;
+    }
+    
+    public long getLedgerSubmitTimeoutMs() {
+        return ledgerSubmitTimeoutMs;
+    }
+    
+    public String getLedgerJournalDir() {
+        return ledgerJournalDir;
+    }
+    
+    public boolean isLedgerJournalFsync() {
+        return ledgerJournalFsync;
+    }
+    
+    public long getLedgerJournalSegmentBytes() {
+        return ledgerJournalSegmentBytes;
+    }
+    
+    public int getLedgerWriteBehindBatchSize() {
+        return ledgerWriteBehindBatchSize;
+    }
+    
+    public int getLedgerWriteBehindQueueSize() {
+        return ledgerWriteBehindQueueSize;
+    }
+    
+    public long getLedgerWriteBehindMaxDelayMs() {
+        return ledgerWriteBehindMaxDelayMs;
+    }
+    
+    public boolean isAuditEnabled() {
+        return auditEnabled;
+    }
+    
+    public int getAuditQueueSize() {
+        return auditQueueSize;
+    }
+    
+    public int getAuditBatchSize() {
+        return auditBatchSize;
+    }
+    
+    public long getAuditMaxDelayMs() {
+        return auditMaxDelayMs;
+    }
+    
+    public AuditOverflowPolicy getAuditOverflowPolicy() {
+        return auditOverflowPolicy;
+    }
+    
+    public long getAuditBlockTimeoutMs() {
+        return auditBlockTimeoutMs;
+    }
+    
+    public boolean isMetricsLogEnabled() {
+        return metricsLogEnabled;
+    }
+    
+    public long getMetricsLogIntervalSeconds() {
+        return metricsLogIntervalSeconds;
+    }
+    
+    public boolean isMetricsJmxEnabled() {
+        return metricsJmxEnabled;
+    }
+    
+    public String getMetricsJmxObjectName() {
+        return metricsJmxObjectName;
+    }
+    
+    public AsyncExecutorMode getAsyncExecutorMode() {
+        return asyncExecutorMode;
+    }
+    
+    public int getAsyncMaxInFlight() {
+        return asyncMaxInFlight;
+    }
+    
+    public AsyncAdmissionPolicy getAsyncAdmissionPolicy() {
+        return asyncAdmissionPolicy;
+    }
+    
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+    
+    public long getAsyncShutdownTimeoutMs() {
+        return asyncShutdownTimeoutMs;
+    }
+    
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+    
+    public long getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+    
+    public long getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+    
+    public boolean isArchiveEnabled() {
+        return archiveEnabled;
+    }
+    
+    public int getArchiveHorizonDays() {
+        return archiveHorizonDays;
+    }
+    
+    public int getArchiveChunkSize() {
+        return archiveChunkSize;
+    }
+    
+    public long getArchiveIntervalMinutes() {
+        return archiveIntervalMinutes;
+    }
+    
+    public boolean isSnapshotEnabled() {
+        return snapshotEnabled;
+    }
+    
+    public long getSnapshotIntervalMinutes() {
+        return snapshotIntervalMinutes;
+    }
+    
+    public long getSnapshotSettleSeconds() {
+        return snapshotSettleSeconds;
+    }
+    
+    public int getReconcilePartitions() {
+        return reconcilePartitions;
+    }
+    
+    public int getReconcileParallelism() {
+        return reconcileParallelism;
+    }
+    
+    public int getReconcilePageSize() {
+        return reconcilePageSize;
+    }
+    
+    public boolean isSqlLogEnabled() {
+        return sqlLogEnabled;
+    }
+    
+    public long getSqlSlowThresholdMs() {
+        return sqlSlowThresholdMs;
+    }
+    
+    public double getSqlSampleRate() {
+        return sqlSampleRate;
+    }
+    
+    public int getSqlQueueSize() {
+        return sqlQueueSize;
+    }
+    
+    public int getSqlTopN() {
+        return sqlTopN;
+    }
+    
+    public boolean isStartupBackgroundBootstrap() {
+        return startupBackgroundBootstrap;
+    }
+    
+    public boolean isStartupReportEnabled() {
+        return startupReportEnabled;
+    }
+    
+    public int getStartupReportTopN() {
+        return startupReportTopN;
+    }
+}
+
+// BankingContext.java
+package com.example.banking.config;
+
+import com.example.banking.startup.StartupReport;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+// Entry point for building the banking context: records every startup step in a StartupReport
+// and prints it once refresh completes, unless banking.startup.report.enabled=false
+public final class BankingContext {
+    
+    private BankingContext() {
+    }
+    
+    public static AnnotationConfigApplicationContext start() {
+        StartupReport report = new StartupReport();
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setApplicationStartup(report);
+        context.register(AppConfig.class);
+        context.refresh();
+        
+        BankingProperties properties = context.getBean(BankingProperties.class);
+        if (properties.isStartupReportEnabled()) {
+            System.out.println(report.format(properties.getStartupReportTopN()));
+        }
+        return context;
+    }
+}
+
+// StartupReport.java
+package com.example.banking.startup;
+
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// ApplicationStartup that keeps every finished step: Spring's own (bean creation, configuration
+// parsing, refresh) plus the banking.hibernate.* steps for entity scanning, the background
+// SessionFactory build and schema handling. Self time excludes nested steps on the same thread.
+public class StartupReport implements ApplicationStartup {
+    
+    private static final String BEAN_STEP = "spring.beans.instantiate";
+    
+    private final AtomicLong ids = new AtomicLong();
+    private final ThreadLocal<Step> current = new ThreadLocal<>();
+    private final Queue<Step> finished = new ConcurrentLinkedQueue<>();
+    private final long createdNanos = System.nanoTime();
+    
+    @Override
+    public StartupStep start(String name) {
+        Step step = new Step(ids.incrementAndGet(), name, current.get());
+        current.set(step);
+        return step;
+    }
+    
+    // Per step name, then the topN beans by self time
+    public String format(int topN) {
+        Map<String, long[]> byName = new LinkedHashMap<>();
+        List<Step> beans = new ArrayList<>();
+        for (Step step : finished) {
+            long[] totals = byName.computeIfAbsent(step.name, name -> new long[3]);
+            totals[0]++;
+            totals[1] += step.durationNanos;
+            totals[2] += step.durationNanos - step.childNanos;
+            if (step.name.equals(BEAN_STEP)) {
+                beans.add(step);
+            }
+        }
+        
+        StringBuilder out = new StringBuilder("--- Startup Report ---\n");
+        out.append(String.format("%-45s %6s %10s %10s%n", "step", "count", "total ms", "self ms"));
+        byName.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[1]).reversed())
+                .forEach(entry -> out.append(String.format("%-45s %6d %10.1f %10.1f%n", entry.getKey(),
+                        entry.getValue()[0], millis(entry.getValue()[1]), millis(entry.getValue()[2]))));
+        
+        beans.sort(Comparator.comparingLong((Step step) -> step.durationNanos - step.childNanos).reversed());
+        out.append("Slowest beans (self ms):");
+        for (Step bean : beans.subList(0, Math.min(topN, beans.size()))) {
+            out.append(String.format("%n  %-43s %10.1f", bean.tag("beanName"), millis(bean.durationNanos - bean.childNanos)));
+        }
+        out.append(String.format("%nElapsed since context creation: %.1f ms", millis(System.nanoTime() - createdNanos)));
+        return out.toString();
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+    
+    private class Step implements StartupStep {
+        
+        private final long id;
+        private final String name;
+        private final Step parent;
+        private final List<Tag> tags = new ArrayList<>();
+        private final long startNanos = System.nanoTime();
+        private long durationNanos;
+        // Only touched by the thread that owns this step and its children
+        private long childNanos;
+        
+        Step(long id, String name, Step parent) {
+            this.id = id;
+            this.name = name;
+            this.parent = parent;
+        }
+        
+        @Override
+        public String getName() {
+            return name;
+        }
+        
+        @Override
+        public long getId() {
+            return id;
+        }
+        
+        @Override
+        public Long getParentId() {
+            return parent == null ? null : parent.id;
+        }
+        
+        @Override
+        public StartupStep tag(String key, String value) {
+            tags.add(new SimpleTag(key, value));
+            return this;
+        }
+        
+        @Override
+        public StartupStep tag(String key, Supplier<String> value) {
+            return tag(key, value.get());
+        }
+        
+        @Override
+        public Tags getTags() {
+            return tags::iterator;
+        }
+        
+        @Override
+        public void end() {
+            durationNanos = System.nanoTime() - startNanos;
+            if (current.get() == this) {
+                current.set(parent);
+            }
+            if (parent != null) {
+                parent.childNanos += durationNanos;
+            }
+            finished.add(this);
+        }
+        
+        String tag(String key) {
+            for (Tag tag : tags) {
+                if (tag.getKey().equals(key)) {
+                    return tag.getValue();
+                }
+            }
+            return "?";
+        }
+    }
+    
+    private static class SimpleTag implements StartupStep.Tag {
+        
+        private final String key;
+        private final String value;
+        
+        SimpleTag(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+        
+        @Override
+        public String getKey() {
+            return key;
+        }
+        
+        @Override
+        public String getValue() {
+            return value;
+        }
+    }
+}
+
+// StartupSessionFactoryBean.java
+package com.example.banking.startup;
+
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBuilder;
+
+import java.io.IOException;
+
+// LocalSessionFactoryBean reporting its phases to ApplicationStartup. Entity scanning runs on the
+// caller; with background bootstrap, building the metadata, the SessionFactory and the schema runs
+// on a separate thread while the rest of the context wires up. Until then the bean is a proxy
+// whose calls block until the real SessionFactory is ready. Once every singleton exists the bean
+// waits for the build, so a failed bootstrap fails refresh even if nothing touched the proxy yet.
+public class StartupSessionFactoryBean extends LocalSessionFactoryBean implements SmartInitializingSingleton {
+    
+    private final ApplicationStartup applicationStartup;
+    private final boolean backgroundBootstrap;
+    private StartupStep scanStep;
+    
+    public StartupSessionFactoryBean(ApplicationStartup applicationStartup, boolean backgroundBootstrap) {
+        this.applicationStartup = applicationStartup;
+        this.backgroundBootstrap = backgroundBootstrap;
+        if (backgroundBootstrap) {
+            setBootstrapExecutor(bootstrapExecutor());
+        }
+    }
+    
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        scanStep = applicationStartup.start("banking.hibernate.scan");
+        super.afterPropertiesSet();
+    }
+    
+    @Override
+    protected SessionFactory buildSessionFactory(LocalSessionFactoryBuilder sfb) {
+        scanStep.end();
+        return super.buildSessionFactory(sfb);
+    }
+    
+    // Runs before lifecycle beans start; any call on the proxy blocks until the build is done
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!backgroundBootstrap) {
+            return;
+        }
+        StartupStep step = applicationStartup.start("banking.hibernate.await");
+        try {
+            getObject().getMetamodel();
+        } catch (RuntimeException e) {
+            // HibernateException from the build itself, IllegalStateException if it was interrupted
+            throw new BeanInitializationException("Background SessionFactory bootstrap failed", e);
+        } finally {
+            step.end();
+        }
+    }
+    
+    private AsyncTaskExecutor bootstrapExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("session-factory-bootstrap-");
+        executor.setDaemon(true);
+        executor.setTaskDecorator(task -> () -> {
+            StartupStep step = applicationStartup.start("banking.hibernate.bootstrap");
+            try {
+                task.run();
+            } finally {
+                step.end();
+            }
+        });
+        return executor;
+    }
+}
+
+// StartupSchemaManagementTool.java
+package com.example.banking.startup;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.tool.schema.internal.HibernateSchemaManagementTool;
+import org.hibernate.tool.schema.spi.DelayedDropAction;
+import org.hibernate.tool.schema.spi.ExecutionOptions;
+import org.hibernate.tool.schema.spi.SchemaCreator;
+import org.hibernate.tool.schema.spi.SchemaDropper;
+import org.hibernate.tool.schema.spi.SchemaMigrator;
+import org.hibernate.tool.schema.spi.SchemaValidator;
+import org.hibernate.tool.schema.spi.SourceDescriptor;
+import org.hibernate.tool.schema.spi.TargetDescriptor;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.util.Map;
+
+// Hibernate's schema tool with each hbm2ddl action reported as a banking.hibernate.schema.* step;
+// installed through hibernate.schema_management_tool
+public class StartupSchemaManagementTool extends HibernateSchemaManagementTool {
+    
+    private final ApplicationStartup applicationStartup;
+    
+    public StartupSchemaManagementTool(ApplicationStartup applicationStartup) {
+        this.applicationStartup = applicationStartup;
+    }
+    
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SchemaCreator getSchemaCreator(Map options) {
+        SchemaCreator creator = super.getSchemaCreator(options);
+        return (metadata, executionOptions, source, target) ->
+                timed("create", () -> creator.doCreation(metadata, executionOptions, source, target));
+    }
+    
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SchemaDropper getSchemaDropper(Map options) {
+        SchemaDropper dropper = super.getSchemaDropper(options);
+        return new SchemaDropper() {
+            @Override
+            public void doDrop(Metadata metadata, ExecutionOptions executionOptions,
+                               SourceDescriptor source, TargetDescriptor target) {
+                timed("drop", () -> dropper.doDrop(metadata, executionOptions, source, target));
+            }
+            
+            @Override
+            public DelayedDropAction buildDelayedAction(Metadata metadata, ExecutionOptions executionOptions,
+                                                        SourceDescriptor source) {
+                return dropper.buildDelayedAction(metadata, executionOptions, source);
+            }
+        };
+    }
+    
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SchemaMigrator getSchemaMigrator(Map options) {
+        SchemaMigrator migrator = super.getSchemaMigrator(options);
+        return (metadata, executionOptions, target) ->
+                timed("migrate", () -> migrator.doMigration(metadata, executionOptions, target));
+    }
+    
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SchemaValidator getSchemaValidator(Map options) {
+        SchemaValidator validator = super.getSchemaValidator(options);
+        return (metadata, executionOptions) -> timed("validate", () -> validator.doValidation(metadata, executionOptions));
+    }
+    
+    private void timed(String action, Runnable work) {
+        StartupStep step = applicationStartup.start("banking.hibernate.schema." + action);
+        try {
+            work.run();
+        } finally {
+            step.end();
+        }
+    }
+}
+
+// LatencyHistogram.java
+package com.example.banking.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free log-linear histogram of durations in nanoseconds: every power of two
+// is split into 16 linear sub-buckets, so percentiles are within ~6% of the real value
+public class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+    
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+    
+    public long getCount() {
+        return count.sum();
+    }
+    
+    public long getMaxNanos() {
+        return max.get();
+    }
+    
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+    
+    // Returns the lower bound of the bucket holding the given quantile (0.0 - 1.0)
+    public long getPercentileNanos(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(lowerBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+    
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+    
+    @Override
+    public String toString() {
+        return "count=" + getCount() +
+                ", mean=" + format((long) getMeanNanos()) +
+                ", p50=" + format(getPercentileNanos(0.50)) +
+                ", p99=" + format(getPercentileNanos(0.99)) +
+                ", p999=" + format(getPercentileNanos(0.999)) +
+                ", max=" + format(getMaxNanos());
+    }
+    
+    private static String format(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+    }
+    
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket)) << shift;
+    }
+}
+
+// ConnectionPoolMetrics.java
+package com.example.banking.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects HikariCP pool gauges and connection acquire/usage timings
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+    
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+    private final LatencyHistogram usageTime = new LatencyHistogram();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private volatile PoolStats poolStats;
+    
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                connectionsCreated.increment();
+            }
+            
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireTime.record(elapsedAcquiredNanos);
+            }
+            
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageTime.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+            
+            @Override
+            public void recordConnectionTimeout() {
+                acquireTimeouts.increment();
+            }
+        };
+    }
+    
+    public int getActiveConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getActiveConnections();
+    }
+    
+    public int getIdleConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getIdleConnections();
+    }
+    
+    public int getTotalConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getTotalConnections();
+    }
+    
+    public int getMaxConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getMaxConnections();
+    }
+    
+    public int getThreadsAwaitingConnection() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getPendingThreads();
+    }
+    
+    public LatencyHistogram getAcquireTime() {
+        return acquireTime;
+    }
+    
+    public LatencyHistogram getUsageTime() {
+        return usageTime;
+    }
+    
+    public long getConnectionsCreated() {
+        return connectionsCreated.sum();
+    }
+    
+    public long getAcquireTimeouts() {
+        return acquireTimeouts.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return "ConnectionPoolMetrics{" +
+                "active=" + getActiveConnections() +
+                ", idle=" + getIdleConnections() +
+                ", total=" + getTotalConnections() +
+                ", waiting=" + getThreadsAwaitingConnection() +
+                ", created=" + getConnectionsCreated() +
+                ", timeouts=" + getAcquireTimeouts() +
+                ", acquire=[" + acquireTime + "]" +
+                ", usage=[" + usageTime + "]" +
+                '}';
+    }
+}
+
+// HibernateCacheMetrics.java
+package com.example.banking.metrics;
+
+import com.example.banking.entity.Account;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Second-level cache hit/miss counters; requires hibernate.generate_statistics=true
+@Component
+public class HibernateCacheMetrics {
+    
+    private final SessionFactory sessionFactory;
+    
+    @Autowired
+    public HibernateCacheMetrics(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+    
+    public boolean isEnabled() {
+        return sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()
+                && sessionFactory.getStatistics().isStatisticsEnabled();
+    }
+    
+    public long getHitCount(String region) {
+        CacheRegionStatistics stats = regionStatistics(region);
+        return stats == null ? 0L : stats.getHitCount();
+    }
+    
+    public long getMissCount(String region) {
+        CacheRegionStatistics stats = regionStatistics(region);
+        return stats == null ? 0L : stats.getMissCount();
+    }
+    
+    public long getPutCount(String region) {
+        CacheRegionStatistics stats = regionStatistics(region);
+        return stats == null ? 0L : stats.getPutCount();
+    }
+    
+    // Natural-id lookups that still needed SQL to resolve the id
+    public long getNaturalIdQueryCount() {
+        return sessionFactory.getStatistics().getNaturalIdQueryExecutionCount();
+    }
+    
+    @Override
+    public String toString() {
+        if (!isEnabled()) {
+            return "HibernateCacheMetrics{disabled}";
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        return "HibernateCacheMetrics{" +
+                "account=[hits=" + getHitCount(Account.CACHE_REGION) +
+                ", misses=" + getMissCount(Account.CACHE_REGION) +
+                ", puts=" + getPutCount(Account.CACHE_REGION) + "]" +
+                ", accountNaturalId=[hits=" + getHitCount(Account.NATURAL_ID_CACHE_REGION) +
+                ", misses=" + getMissCount(Account.NATURAL_ID_CACHE_REGION) +
+                ", puts=" + getPutCount(Account.NATURAL_ID_CACHE_REGION) + "]" +
+                ", naturalIdQueries=" + getNaturalIdQueryCount() +
+                ", entityLoads=" + statistics.getEntityLoadCount() +
+                '}';
+    }
+    
+    private CacheRegionStatistics regionStatistics(String region) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return sessionFactory.getStatistics().getDomainDataRegionStatistics(region);
+    }
+}
+
+// MetricsRegistry.java
+package com.example.banking.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Single home for application metrics: timers, counters and gauges that are only read at
+// export time. Every MetricsExporter bean is started with the registry.
+@Component
+public class MetricsRegistry implements SmartLifecycle {
+    
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+    private final ObjectProvider<MetricsExporter> exporterProvider;
+    private final List<MetricsExporter> startedExporters = new ArrayList<>();
+    private volatile boolean running;
+    
+    @Autowired
+    public MetricsRegistry(ObjectProvider<MetricsExporter> exporterProvider) {
+        this.exporterProvider = exporterProvider;
+    }
+    
+    // Tags are key/value pairs: timer("banking.service.transferMoney", "outcome", "success")
+    public LatencyHistogram timer(String name, String... tags) {
+        return timers.computeIfAbsent(id(name, tags), id -> new LatencyHistogram());
+    }
+    
+    // Publishes a histogram that is owned elsewhere
+    public void register(String name, LatencyHistogram histogram) {
+        timers.put(name, histogram);
+    }
+    
+    public LongAdder counter(String name, String... tags) {
+        return counters.computeIfAbsent(id(name, tags), id -> new LongAdder());
+    }
+    
+    public void gauge(String name, Supplier<? extends Number> value) {
+        gauges.put(name, value);
+    }
+    
+    // Flat, sorted view of every metric. Timers expand to count, mean and percentiles in
+    // microseconds; timers that never fired are left out.
+    public SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> snapshot = new TreeMap<>();
+        counters.forEach((id, counter) -> snapshot.put(id, counter.sum()));
+        gauges.forEach((id, gauge) -> {
+            try {
+                Number value = gauge.get();
+                if (value != null) {
+                    snapshot.put(id, value);
+                }
+            } catch (RuntimeException e) {
+                // The source is gone (e.g. the pool is closing); skip it for this snapshot
+            }
+        });
+        timers.forEach((id, timer) -> {
+            long count = timer.getCount();
+            if (count > 0) {
+                snapshot.put(withSuffix(id, "count"), count);
+                snapshot.put(withSuffix(id, "meanUs"), micros((long) timer.getMeanNanos()));
+                snapshot.put(withSuffix(id, "p50Us"), micros(timer.getPercentileNanos(0.50)));
+                snapshot.put(withSuffix(id, "p99Us"), micros(timer.getPercentileNanos(0.99)));
+                snapshot.put(withSuffix(id, "p999Us"), micros(timer.getPercentileNanos(0.999)));
+                snapshot.put(withSuffix(id, "maxUs"), micros(timer.getMaxNanos()));
+            }
+        });
+        return snapshot;
+    }
+    
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        exporterProvider.orderedStream().forEach(exporter -> {
+            exporter.start(this);
+            startedExporters.add(exporter);
+        });
+        running = true;
+    }
+    
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        List<MetricsExporter> exporters = new ArrayList<>(startedExporters);
+        Collections.reverse(exporters);
+        for (MetricsExporter exporter : exporters) {
+            exporter.stop();
+        }
+        startedExporters.clear();
+        running = false;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    // Stop after the components that feed the metrics, so exporters see their final values
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 2;
+    }
+    
+    private static String id(String name, String... tags) {
+        if (tags.length == 0) {
+            return name;
+        }
+        StringBuilder id = new StringBuilder(name).append('{');
+        for (int i = 0; i + 1 < tags.length; i += 2) {
+            if (i > 0) {
+                id.append(',');
+            }
+            id.append(tags[i]).append('=').append(tags[i + 1]);
+        }
+        return id.append('}').toString();
+    }
+    
+    // banking.service.transferMoney{outcome=success} -> banking.service.transferMoney.count{outcome=success}
+    private static String withSuffix(String id, String suffix) {
+        int tagStart = id.indexOf('{');
+        return tagStart < 0
+                ? id + '.' + suffix
+                : id.substring(0, tagStart) + '.' + suffix + id.substring(tagStart);
+    }
+    
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
+
+// MetricsExporter.java
+package com.example.banking.metrics;
+
+// Publishes MetricsRegistry contents to some backend. Any bean implementing this is started
+// and stopped together with the registry.
+public interface MetricsExporter {
+    
+    void start(MetricsRegistry registry);
+    
+    void stop();
+}
+
+// LogMetricsExporter.java
+package com.example.banking.metrics;
+
+import com.example.banking.config.BankingProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Prints a full snapshot every banking.metrics.log.intervalSeconds and once more on shutdown
+@Component
+public class LogMetricsExporter implements MetricsExporter {
+    
+    private final boolean enabled;
+    private final long intervalSeconds;
+    private MetricsRegistry registry;
+    private ScheduledExecutorService scheduler;
+    
+    @Autowired
+    public LogMetricsExporter(BankingProperties properties) {
+        this.enabled = properties.isMetricsLogEnabled();
+        this.intervalSeconds = Math.max(1L, properties.getMetricsLogIntervalSeconds());
+    }
+    
+    @Override
+    public synchronized void start(MetricsRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        this.registry = registry;
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-log-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::export, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    @Override
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        export();
+    }
+    
+    private void export() {
+        StringBuilder out = new StringBuilder("--- Metrics ---");
+        for (Map.Entry<String, Number> metric : registry.snapshot().entrySet()) {
+            out.append('\n').append(metric.getKey()).append(" = ").append(metric.getValue());
+        }
+        System.out.println(out);
+    }
+}
+
+// JmxMetricsExporter.java
+package com.example.banking.metrics;
+
+import com.example.banking.config.BankingProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+
+// Exposes every metric as a read-only attribute of one MBean (default com.example.banking:type=Metrics).
+// Values are read from the registry when a JMX client asks for them.
+@Component
+public class JmxMetricsExporter implements MetricsExporter, DynamicMBean {
+    
+    private final boolean enabled;
+    private final ObjectName objectName;
+    private volatile MetricsRegistry registry;
+    private boolean registered;
+    
+    @Autowired
+    public JmxMetricsExporter(BankingProperties properties) throws MalformedObjectNameException {
+        this.enabled = properties.isMetricsJmxEnabled();
+        this.objectName = new ObjectName(properties.getMetricsJmxObjectName());
+    }
+    
+    @Override
+    public synchronized void start(MetricsRegistry registry) {
+        this.registry = registry;
+        if (!enabled) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+                registered = true;
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean " + objectName + ": " + e);
+        }
+    }
+    
+    @Override
+    public synchronized void stop() {
+        if (!registered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            System.err.println("Could not unregister metrics MBean " + objectName + ": " + e);
+        }
+        registered = false;
+    }
+    
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = registry.snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+    
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        SortedMap<String, Number> snapshot = registry.snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = snapshot.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+    
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metric " + attribute.getName() + " is read-only");
+    }
+    
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+    
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+    
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        SortedMap<String, Number> snapshot = registry.snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (Map.Entry<String, Number> metric : snapshot.entrySet()) {
+            attributes[i++] = new MBeanAttributeInfo(metric.getKey(), metric.getValue().getClass().getName(),
+                    metric.getKey(), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Banking application metrics", attributes, null, null, null);
+    }
+}
+
+// ServiceMetricsAdvisor.java
+package com.example.banking.metrics;
+
+import com.example.banking.exception.AccountNotFoundException;
+import com.example.banking.exception.InsufficientFundsException;
+import com.example.banking.service.BankingService;
+import com.example.banking.service.TransferOutcome;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.core.Ordered;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Times every public BankingService method as banking.service.<method>{outcome=...}. Ordered
+// first so the time includes the commit done by the transactional advice behind it. Also names the
+// call for SlowQueryLog, so statements flushed at commit are attributed to the entry point.
+public class ServiceMetricsAdvisor extends StaticMethodMatcherPointcutAdvisor {
+    
+    public ServiceMetricsAdvisor(MetricsRegistry registry) {
+        super(new Interceptor(registry));
+        setOrder(Ordered.HIGHEST_PRECEDENCE);
+    }
+    
+    @Override
+    public boolean matches(Method method, Class<?> targetClass) {
+        return method.getDeclaringClass() == BankingService.class && Modifier.isPublic(method.getModifiers());
+    }
+    
+    enum Outcome {
+        SUCCESS,
+        INSUFFICIENT_FUNDS,
+        NOT_FOUND,
+        INVALID,
+        REJECTED,
+        SYSTEM_ERROR
+    }
+    
+    private static class Interceptor implements MethodInterceptor {
+        
+        private static final Outcome[] OUTCOMES = Outcome.values();
+        
+        private final MetricsRegistry registry;
+        private final Map<Method, LatencyHistogram[]> timers = new ConcurrentHashMap<>();
+        
+        Interceptor(MetricsRegistry registry) {
+            this.registry = registry;
+        }
+        
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            Outcome outcome = Outcome.SYSTEM_ERROR;
+            String outer = SlowQueryLog.enterOperation("BankingService." + invocation.getMethod().getName());
+            try {
+                Object result = invocation.proceed();
+                outcome = result instanceof TransferOutcome ? outcomeOf((TransferOutcome) result) : Outcome.SUCCESS;
+                return result;
+            } catch (InsufficientFundsException e) {
+                outcome = Outcome.INSUFFICIENT_FUNDS;
+                throw e;
+            } catch (AccountNotFoundException e) {
+                outcome = Outcome.NOT_FOUND;
+                throw e;
+            } catch (IllegalArgumentException e) {
+                outcome = Outcome.INVALID;
+                throw e;
+            } finally {
+                SlowQueryLog.exitOperation(outer);
+                timer(invocation.getMethod(), outcome).record(System.nanoTime() - start);
+            }
+        }
+        
+        // Resolved once per method and outcome; racing threads get the same registry instance
+        private LatencyHistogram timer(Method method, Outcome outcome) {
+            LatencyHistogram[] methodTimers = timers.computeIfAbsent(method, m -> new LatencyHistogram[OUTCOMES.length]);
+            LatencyHistogram timer = methodTimers[outcome.ordinal()];
+            if (timer == null) {
+                timer = registry.timer("banking.service." + method.getName(),
+                        "outcome", outcome.name().toLowerCase(Locale.ROOT));
+                methodTimers[outcome.ordinal()] = timer;
+            }
+            return timer;
+        }
+        
+        private static Outcome outcomeOf(TransferOutcome result) {
+            switch (result.getStatus()) {
+                case SUCCESS:
+                    return Outcome.SUCCESS;
+                case INSUFFICIENT_FUNDS:
+                    return Outcome.INSUFFICIENT_FUNDS;
+                case ACCOUNT_NOT_FOUND:
+                    return Outcome.NOT_FOUND;
+                case INVALID_AMOUNT:
+                case SAME_ACCOUNT:
+                    return Outcome.INVALID;
+                default:
+                    return Outcome.REJECTED;
+            }
+        }
+    }
+}
+
+// SlowQueryLog.java
+package com.example.banking.metrics;
+
+import com.example.banking.config.BankingProperties;
+import com.example.banking.service.BankingService;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Replacement for hibernate.show_sql: every JDBC statement is timed, but only statements slower than
+// banking.sql.slowThresholdMs, plus a banking.sql.sampleRate fraction of the rest, are logged, by a
+// background thread so callers never wait on stdout. Also keeps the banking.sql.topN slowest statements.
+public class SlowQueryLog implements SmartLifecycle, Runnable {
+    
+    private static final String SERVICE_CLASS = BankingService.class.getName();
+    private static final String APPLICATION_PACKAGE = "com.example.banking.";
+    private static final String METRICS_PACKAGE = SlowQueryLog.class.getPackage().getName() + ".";
+    // Public service call in progress on this thread, set by ServiceMetricsAdvisor
+    private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+    
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int topN;
+    private final BlockingQueue<Entry> queue;
+    private final PriorityQueue<Entry> slowest = new PriorityQueue<>(Comparator.comparingLong(Entry::getNanos));
+    private volatile long slowestFloorNanos;
+    
+    private final LatencyHistogram statementTime = new LatencyHistogram();
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running;
+    private Thread thread;
+    
+    public SlowQueryLog(BankingProperties properties) {
+        this.enabled = properties.isSqlLogEnabled();
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, properties.getSqlSlowThresholdMs()));
+        this.sampleRate = Math.max(0.0, Math.min(1.0, properties.getSqlSampleRate()));
+        this.topN = Math.max(0, properties.getSqlTopN());
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getSqlQueueSize()));
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    // Called on the executing thread right after the statement returns
+    public void record(String sql, long nanos, int bindCount, int batchSize) {
+        statementTime.record(nanos);
+        boolean isSlow = nanos >= thresholdNanos;
+        boolean isSampled = !isSlow && sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        boolean isTop = topN > 0 && nanos > slowestFloorNanos;
+        if (!isSlow && !isSampled && !isTop) {
+            return;
+        }
+        
+        // Only resolved for statements that are kept, so the stack walk stays off the fast path
+        Entry entry = new Entry(sql, nanos, bindCount, batchSize, findCaller(),
+                isSlow ? "SLOW" : isSampled ? "SAMPLE" : "TOP");
+        if (isTop) {
+            addSlowest(entry);
+        }
+        if (isSlow || isSampled) {
+            if (isSlow) {
+                slow.increment();
+            } else {
+                sampled.increment();
+            }
+            if (!queue.offer(entry)) {
+                dropped.increment();
+            }
+        }
+    }
+    
+    private synchronized void addSlowest(Entry entry) {
+        slowest.add(entry);
+        if (slowest.size() > topN) {
+            slowest.poll();
+        }
+        if (slowest.size() == topN) {
+            slowestFloorNanos = slowest.peek().getNanos();
+        }
+    }
+    
+    // Names the operation statements on this thread belong to; the outermost call wins.
+    // Returns what was set before, for exitOperation.
+    static String enterOperation(String operation) {
+        String outer = OPERATION.get();
+        if (outer == null) {
+            OPERATION.set(operation);
+        }
+        return outer;
+    }
+    
+    static void exitOperation(String outer) {
+        if (outer == null) {
+            OPERATION.remove();
+        }
+    }
+    
+    // The public service call in progress if there is one, else the BankingService method on the
+    // stack, else the nearest application frame
+    private static String findCaller() {
+        String operation = OPERATION.get();
+        if (operation != null) {
+            return operation;
+        }
+        return StackWalker.getInstance().walk(frames -> {
+            String nearest = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String className = frame.getClassName();
+                if (className.equals(SERVICE_CLASS)) {
+                    return "BankingService." + methodName(frame);
+                }
+                if (nearest == null && className.startsWith(APPLICATION_PACKAGE)
+                        && !className.startsWith(METRICS_PACKAGE) && !className.contains("$$")) {
+                    nearest = className.substring(className.lastIndexOf('.') + 1) + "." + methodName(frame);
+                }
+            }
+            return nearest == null ? "?" : nearest;
+        });
+    }
+    
+    // lambda$transfer$0 -> transfer
+    private static String methodName(StackWalker.StackFrame frame) {
+        String name = frame.getMethodName();
+        return name.startsWith("lambda$") ? name.substring(7, name.indexOf('$', 7)) : name;
+    }
+    
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "slow-query-log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    // Drains what is queued, then prints the slowest statements seen
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (topN > 0) {
+            StringBuilder out = new StringBuilder("--- Slowest Statements ---");
+            for (Entry entry : getSlowest()) {
+                out.append('\n').append(entry);
+            }
+            System.out.println(out);
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    // Stop after everything that still runs SQL on shutdown, including MetricsRegistry
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 3;
+    }
+    
+    @Override
+    public void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    System.out.println(entry);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    // Slowest first
+    public synchronized List<Entry> getSlowest() {
+        List<Entry> entries = new ArrayList<>(slowest);
+        entries.sort(Comparator.comparingLong(Entry::getNanos).reversed());
+        return entries;
+    }
+    
+    public LatencyHistogram getStatementTime() {
+        return statementTime;
+    }
+    
+    public long getSlowCount() {
+        return slow.sum();
+    }
+    
+    public long getSampledCount() {
+        return sampled.sum();
+    }
+    
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return "SlowQueryLog{" +
+                "statements=" + statementTime.getCount() +
+                ", slow=" + getSlowCount() +
+                ", sampled=" + getSampledCount() +
+                ", dropped=" + getDroppedCount() +
+                ", thresholdMs=" + TimeUnit.NANOSECONDS.toMillis(thresholdNanos) +
+                ", sampleRate=" + sampleRate +
+                '}';
+    }
+    
+    public static class Entry {
+        
+        private final String sql;
+        private final long nanos;
+        private final int bindCount;
+        private final int batchSize;
+        private final String caller;
+        private final String kind;
+        
+        Entry(String sql, long nanos, int bindCount, int batchSize, String caller, String kind) {
+            this.sql = sql;
+            this.nanos = nanos;
+            this.bindCount = bindCount;
+            this.batchSize = batchSize;
+            this.caller = caller;
+            this.kind = kind;
+        }
+        
+        public String getSql() {
+            return sql;
+        }
+        
+        public long getNanos() {
+            return nanos;
+        }
+        
+        public int getBindCount() {
+            return bindCount;
+        }
+        
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        public String getCaller() {
+            return caller;
+        }
+        
+        @Override
+        public String toString() {
+            return kind + String.format(" %.3f ms", nanos / 1e6) +
+                    " [" + caller + "]" +
+                    " binds=" + bindCount +
+                    (batchSize > 0 ? " batch=" + batchSize : "") +
+                    ": " + sql;
+        }
+    }
+}
+
+// StatementTimingDataSource.java
+package com.example.banking.metrics;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+// Wraps a DataSource so every statement execution is timed and handed to SlowQueryLog. Statements
+// are JDK proxies over the pooled driver objects; bind parameters are counted, never captured.
+public final class StatementTimingDataSource {
+    
+    private StatementTimingDataSource() {
+    }
+    
+    public static DataSource wrap(DataSource dataSource, SlowQueryLog log) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Connection ? wrapConnection((Connection) result, log) : result;
+        });
+    }
+    
+    private static Connection wrapConnection(Connection connection, SlowQueryLog log) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof CallableStatement) {
+                return proxy(CallableStatement.class, result, new StatementHandler(log, (String) args[0]));
+            }
+            if (result instanceof PreparedStatement) {
+                return proxy(PreparedStatement.class, result, new StatementHandler(log, (String) args[0]));
+            }
+            if (result instanceof Statement) {
+                return proxy(Statement.class, result, new StatementHandler(log, null));
+            }
+            return result;
+        });
+    }
+    
+    private static class StatementHandler implements TargetHandler {
+        
+        private final SlowQueryLog log;
+        private final String preparedSql;
+        private String batchSql;
+        private int bindCount;
+        private int batchBindCount;
+        private int batchSize;
+        
+        StatementHandler(SlowQueryLog log, String preparedSql) {
+            this.log = log;
+            this.preparedSql = preparedSql;
+        }
+        
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bindCount++;
+            } else if (name.equals("clearParameters")) {
+                bindCount = 0;
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                batchBindCount += bindCount;
+                bindCount = 0;
+                if (args != null) {
+                    batchSql = batchSql == null ? (String) args[0] : batchSql + "; " + args[0];
+                }
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+                batchBindCount = 0;
+                batchSql = null;
+            } else if (name.startsWith("execute")) {
+                return execute(target, method, args, name.endsWith("Batch"));
+            }
+            return StatementTimingDataSource.invoke(target, method, args);
+        }
+        
+        private Object execute(Object target, Method method, Object[] args, boolean batch) throws Throwable {
+            String sql = batch && batchSql != null ? batchSql
+                    : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            int binds = batch ? batchBindCount : bindCount;
+            int size = batch ? batchSize : 0;
+            long start = System.nanoTime();
+            try {
+                return StatementTimingDataSource.invoke(target, method, args);
+            } finally {
+                log.record(sql, System.nanoTime() - start, binds, size);
+                bindCount = 0;
+                if (batch) {
+                    batchSize = 0;
+                    batchBindCount = 0;
+                    batchSql = null;
+                }
+            }
+        }
+    }
+    
+    private interface TargetHandler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+    
+    private static <T> T proxy(Class<T> type, Object target, TargetHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
+
+// MetricsBindings.java
+package com.example.banking.metrics;
+
+import com.example.banking.archive.TransactionArchiver;
+import com.example.banking.audit.AuditJournal;
+import com.example.banking.cache.AccountCache;
+import com.example.banking.ledger.LedgerEngine;
+import com.example.banking.reconcile.BalanceReconciler;
+import com.example.banking.service.AsyncBankingService;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Publishes pool, Hibernate, cache, audit, async, archive, reconciliation and ledger figures as gauges; nothing is read until export.
+// Hibernate values stay at zero unless hibernate.generate_statistics=true.
+@Component
+public class MetricsBindings {
+    
+    @Autowired
+    public MetricsBindings(MetricsRegistry registry, ConnectionPoolMetrics pool, SessionFactory sessionFactory,
+                           AuditJournal auditJournal, LedgerEngine ledgerEngine,
+                           AsyncBankingService asyncBankingService, AccountCache accountCache,
+                           TransactionArchiver archiver, BalanceReconciler reconciler,
+                           SlowQueryLog slowQueryLog) {
+        registry.gauge("jdbc.pool.active", pool::getActiveConnections);
+        registry.gauge("jdbc.pool.idle", pool::getIdleConnections);
+        registry.gauge("jdbc.pool.total", pool::getTotalConnections);
+        registry.gauge("jdbc.pool.max", pool::getMaxConnections);
+        registry.gauge("jdbc.pool.pending", pool::getThreadsAwaitingConnection);
+        registry.gauge("jdbc.pool.created", pool::getConnectionsCreated);
+        registry.gauge("jdbc.pool.timeouts", pool::getAcquireTimeouts);
+        registry.register("jdbc.pool.acquire", pool.getAcquireTime());
+        registry.register("jdbc.pool.usage", pool.getUsageTime());
+        registry.register("jdbc.statements", slowQueryLog.getStatementTime());
+        registry.gauge("jdbc.statements.slow", slowQueryLog::getSlowCount);
+        registry.gauge("jdbc.statements.sampled", slowQueryLog::getSampledCount);
+        registry.gauge("jdbc.statements.dropped", slowQueryLog::getDroppedCount);
+        
+        // Read through the SessionFactory on each export: while it bootstraps in the background it is a
+        // proxy, and touching it here would make context startup wait for it
+        registry.gauge("hibernate.sessions.opened", () -> sessionFactory.getStatistics().getSessionOpenCount());
+        registry.gauge("hibernate.transactions", () -> sessionFactory.getStatistics().getTransactionCount());
+        registry.gauge("hibernate.statements.prepared", () -> sessionFactory.getStatistics().getPrepareStatementCount());
+        registry.gauge("hibernate.flushes", () -> sessionFactory.getStatistics().getFlushCount());
+        registry.gauge("hibernate.queries", () -> sessionFactory.getStatistics().getQueryExecutionCount());
+        registry.gauge("hibernate.queries.maxTimeMs", () -> sessionFactory.getStatistics().getQueryExecutionMaxTime());
+        registry.gauge("hibernate.entities.loaded", () -> sessionFactory.getStatistics().getEntityLoadCount());
+        registry.gauge("hibernate.entities.fetched", () -> sessionFactory.getStatistics().getEntityFetchCount());
+        registry.gauge("hibernate.entities.inserted", () -> sessionFactory.getStatistics().getEntityInsertCount());
+        registry.gauge("hibernate.entities.updated", () -> sessionFactory.getStatistics().getEntityUpdateCount());
+        registry.gauge("hibernate.entities.deleted", () -> sessionFactory.getStatistics().getEntityDeleteCount());
+        registry.gauge("hibernate.optimisticFailures", () -> sessionFactory.getStatistics().getOptimisticFailureCount());
+        registry.gauge("hibernate.cache.hits", () -> sessionFactory.getStatistics().getSecondLevelCacheHitCount());
+        registry.gauge("hibernate.cache.misses", () -> sessionFactory.getStatistics().getSecondLevelCacheMissCount());
+        registry.gauge("hibernate.cache.puts", () -> sessionFactory.getStatistics().getSecondLevelCachePutCount());
+        registry.gauge("hibernate.naturalId.cache.hits", () -> sessionFactory.getStatistics().getNaturalIdCacheHitCount());
+        registry.gauge("hibernate.naturalId.cache.misses", () -> sessionFactory.getStatistics().getNaturalIdCacheMissCount());
+        registry.gauge("hibernate.naturalId.queries", () -> sessionFactory.getStatistics().getNaturalIdQueryExecutionCount());
+        
+        registry.gauge("audit.queue.depth", auditJournal::getQueueDepth);
+        registry.gauge("audit.recorded", auditJournal::getRecordedCount);
+        registry.gauge("audit.written", auditJournal::getWrittenCount);
+        registry.gauge("audit.dropped", auditJournal::getDroppedCount);
+        registry.gauge("audit.rejected", auditJournal::getRejectedCount);
+        registry.gauge("audit.blocked", auditJournal::getBlockedCount);
+        registry.gauge("audit.writeFailures", auditJournal::getWriteFailureCount);
+        registry.gauge("audit.writeDropped", auditJournal::getWriteDroppedCount);
+        
+        registry.gauge("cache.account.hits", accountCache::getHitCount);
+        registry.gauge("cache.account.misses", accountCache::getMissCount);
+        registry.gauge("cache.account.updates", accountCache::getUpdateCount);
+        registry.gauge("cache.account.hitRatio", accountCache::getHitRatio);
+        
+        registry.gauge("async.inFlight", asyncBankingService::getInFlight);
+        registry.gauge("async.submitted", asyncBankingService::getSubmittedCount);
+        registry.gauge("async.rejected", asyncBankingService::getRejectedCount);
+        
+        registry.gauge("archive.archived", archiver::getArchivedCount);
+        registry.gauge("reconcile.mismatches", reconciler::getLastMismatchCount);
+        
+        if (ledgerEngine.isEnabled()) {
+            registry.gauge("ledger.queue.commands", ledgerEngine::getCommandQueueDepth);
+            registry.gauge("ledger.queue.writes", ledgerEngine::getWriteBehindQueueDepth);
+            registry.gauge("ledger.persisted", ledgerEngine::getPersistedCount);
+            registry.gauge("ledger.writeFailures", ledgerEngine::getWriteBehindFailureCount);
+            registry.gauge("ledger.writeBehindFailed", () -> ledgerEngine.isWriteBehindFailed() ? 1 : 0);
+        }
+    }
+}
+
+// AccountRepository.java
+package com.example.banking.repository;
+
+import com.example.banking.entity.Account;
+import com.example.banking.entity.Money;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class AccountRepository {
+    
+    private final SessionFactory sessionFactory;
+    
+    @Autowired
+    public AccountRepository(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+    
+    public void save(Account account) {
+        Session session = sessionFactory.getCurrentSession();
+        session.saveOrUpdate(account);
+    }
+    
+    public Account findById(Long id) {
+        Session session = sessionFactory.getCurrentSession();
+        return session.get(Account.class, id);
+    }
+    
+    // Natural-id lookup: served from the natural-id and entity caches when both are warm
+    public Optional<Account> findByAccountNumber(String accountNumber) {
+        Session session = sessionFactory.getCurrentSession();
+        return session.bySimpleNaturalId(Account.class).loadOptional(accountNumber);
+    }
+    
+    // SELECT ... FOR UPDATE on the account number index, so a concurrent writer makes this wait.
+    // Not a natural-id load: that reads the row unlocked, then upgrades the lock with a version
+    // check and fails on conflict. Callers must lock several accounts in account number order.
+    public Optional<Account> findByAccountNumberForUpdate(String accountNumber) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Account> cq = cb.createQuery(Account.class);
+        Root<Account> root = cq.from(Account.class);
+        cq.select(root).where(cb.equal(root.get("accountNumber"), accountNumber));
+        return session.createQuery(cq)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .uniqueResultOptional();
+    }
+    
+    // Single IN query in account number order, so FOR UPDATE locks follow the global lock order;
+    // callers are expected to chunk large collections
+    public List<Account> findByAccountNumbers(Collection<String> accountNumbers, boolean forUpdate) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Account> cq = cb.createQuery(Account.class);
+        Root<Account> root = cq.from(Account.class);
+        cq.select(root).where(root.get("accountNumber").in(accountNumbers)).orderBy(cb.asc(root.get("accountNumber")));
+        TypedQuery<Account> query = session.createQuery(cq);
+        if (forUpdate) {
+            query.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        }
+        return query.getResultList();
+    }
+    
+    public void detach(Account account) {
+        sessionFactory.getCurrentSession().evict(account);
+    }
+    
+    // Bulk relative update used by ledger write-behind; bumps the version so optimistic writers notice
+    public int applyBalanceDelta(String accountNumber, Money delta) {
+        Session session = sessionFactory.getCurrentSession();
+        return session.createQuery("update Account a set a.balance = a.balance + :delta, a.version = a.version + 1 "
+                        + "where a.accountNumber = :accountNumber")
+                .setParameter("delta", delta)
+                .setParameter("accountNumber", accountNumber)
+                .executeUpdate();
+    }
+    
+    public List<Account> findAll() {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Account> cq = cb.createQuery(Account.class);
+        Root<Account> root = cq.from(Account.class);
+        cq.select(root);
+        TypedQuery<Account> query = session.createQuery(cq);
+        return query.getResultList();
+    }
+    
+    // Keyset page in account number order over (afterAccountNumber, lastAccountNumber]; null bounds are open
+    public List<Account> findPage(String afterAccountNumber, String lastAccountNumber, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Account> cq = cb.createQuery(Account.class);
+        Root<Account> root = cq.from(Account.class);
+        List<Predicate> predicates = new ArrayList<>();
+        if (afterAccountNumber != null) {
+            predicates.add(cb.greaterThan(root.get("accountNumber"), afterAccountNumber));
+        }
+        if (lastAccountNumber != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("accountNumber"), lastAccountNumber));
+        }
+        cq.select(root).where(predicates.toArray(new Predicate[0])).orderBy(cb.asc(root.get("accountNumber")));
+        TypedQuery<Account> query = session.createQuery(cq);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+    
+    public long count() {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        cq.select(cb.count(cq.from(Account.class)));
+        return session.createQuery(cq).getSingleResult();
+    }
+    
+    // Account number at a zero-based position in account number order; walks the unique index
+    public String findAccountNumberAt(int position) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<String> cq = cb.createQuery(String.class);
+        Root<Account> root = cq.from(Account.class);
+        cq.select(root.<String>get("accountNumber")).orderBy(cb.asc(root.get("accountNumber")));
+        return session.createQuery(cq).setFirstResult(position).setMaxResults(1).getSingleResult();
+    }
+}
+
+// TransactionRepository.java
+package com.example.banking.repository;
+
+import com.example.banking.entity.Transaction;
+import com.example.banking.entity.TransactionStatus;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@Repository
+public class TransactionRepository {
+    
+    private static final Comparator<Transaction> NEWEST_FIRST =
+            Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId).reversed();
+    
+    private final SessionFactory sessionFactory;
+    private final TransactionArchiveRepository archiveRepository;
+    
+    @Autowired
+    public TransactionRepository(SessionFactory sessionFactory, TransactionArchiveRepository archiveRepository) {
+        this.sessionFactory = sessionFactory;
+        this.archiveRepository = archiveRepository;
+    }
+    
+    public void save(Transaction transaction) {
+        Session session = sessionFactory.getCurrentSession();
+        session.saveOrUpdate(transaction);
+    }
+    
+    // Saves and flushes so the pending inserts/updates go out as JDBC batches
+    public void saveAll(Collection<Transaction> transactions) {
+        Session session = sessionFactory.getCurrentSession();
+        for (Transaction transaction : transactions) {
+            session.saveOrUpdate(transaction);
+        }
+        session.flush();
+    }
+    
+    public void detach(Transaction transaction) {
+        sessionFactory.getCurrentSession().evict(transaction);
+    }
+    
+    public Transaction findById(Long id) {
+        Session session = sessionFactory.getCurrentSession();
+        return session.get(Transaction.class, id);
+    }
+    
+    public List<Transaction> findAll() {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Transaction> cq = cb.createQuery(Transaction.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.select(root).orderBy(cb.desc(root.get("timestamp")));
+        TypedQuery<Transaction> query = session.createQuery(cq);
+        return query.getResultList();
+    }
+    
+    // Keyset page, newest first: rows strictly after the (timestamp, id) cursor in that order.
+    // A null cursor returns the first page. Served by idx_transactions_timestamp_id.
+    public List<Transaction> findPage(LocalDateTime afterTimestamp, Long afterId, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Transaction> cq = cb.createQuery(Transaction.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.select(root);
+        if (afterTimestamp != null && afterId != null) {
+            cq.where(cb.or(
+                    cb.lessThan(root.<LocalDateTime>get("timestamp"), afterTimestamp),
+                    cb.and(cb.equal(root.get("timestamp"), afterTimestamp),
+                            cb.lessThan(root.<Long>get("id"), afterId))));
+        }
+        cq.orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        TypedQuery<Transaction> query = session.createQuery(cq);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+    
+    // Same page across the hot table and transactions_archive when includeArchived is set
+    public List<Transaction> findPage(LocalDateTime afterTimestamp, Long afterId, int limit,
+                                      boolean includeArchived) {
+        List<Transaction> rows = findPage(afterTimestamp, afterId, limit);
+        return includeArchived
+                ? withArchived(rows, limit, () -> archiveRepository.findPage(afterTimestamp, afterId, limit))
+                : rows;
+    }
+    
+    // Streams all transactions newest first through a forward-only cursor, detaching each row
+    // once the consumer has seen it. Must be consumed and closed inside the current transaction.
+    public Stream<Transaction> streamAll(int fetchSize) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Transaction> cq = cb.createQuery(Transaction.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.select(root).orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        Query<Transaction> query = session.createQuery(cq);
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        query.setCacheMode(CacheMode.IGNORE);
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        
+        Spliterator<Transaction> spliterator = new Spliterators.AbstractSpliterator<Transaction>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Transaction> action) {
+                if (!results.next()) {
+                    return false;
+                }
+                Transaction transaction = (Transaction) results.get(0);
+                try {
+                    action.accept(transaction);
+                } finally {
+                    session.evict(transaction);
+                }
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(results::close);
+    }
+    
+    // Successful transactions sent (outgoing) or received by an account in [from, to), newest first,
+    // after the optional (timestamp, id) cursor. Served by the (from_account|to_account, timestamp) indexes.
+    public List<Transaction> findByAccount(String accountNumber, boolean outgoing, LocalDateTime from,
+                                           LocalDateTime to, LocalDateTime afterTimestamp, Long afterId, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Transaction> cq = cb.createQuery(Transaction.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        List<Predicate> predicates = accountPredicates(cb, root, accountNumber, outgoing, from, to);
+        if (afterTimestamp != null && afterId != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(root.<LocalDateTime>get("timestamp"), afterTimestamp),
+                    cb.and(cb.equal(root.get("timestamp"), afterTimestamp),
+                            cb.lessThan(root.<Long>get("id"), afterId))));
+        }
+        cq.select(root).where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        TypedQuery<Transaction> query = session.createQuery(cq);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+    
+    public List<Transaction> findByAccount(String accountNumber, boolean outgoing, LocalDateTime from,
+                                           LocalDateTime to, LocalDateTime afterTimestamp, Long afterId, int limit,
+                                           boolean includeArchived) {
+        List<Transaction> rows = findByAccount(accountNumber, outgoing, from, to, afterTimestamp, afterId, limit);
+        return includeArchived
+                ? withArchived(rows, limit, () -> archiveRepository.findByAccount(
+                        accountNumber, outgoing, from, to, afterTimestamp, afterId, limit))
+                : rows;
+    }
+    
+    // Archived rows are all at or before the newest archived timestamp, so the archive is skipped
+    // while a full hot page still ends after it
+    private List<Transaction> withArchived(List<Transaction> rows, int limit, Supplier<List<Transaction>> archived) {
+        LocalDateTime newestArchived = archiveRepository.findNewestTimestamp();
+        if (newestArchived == null
+                || rows.size() >= limit && rows.get(rows.size() - 1).getTimestamp().isAfter(newestArchived)) {
+            return rows;
+        }
+        List<Transaction> merged = new ArrayList<>(rows);
+        merged.addAll(archived.get());
+        merged.sort(NEWEST_FIRST);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+    
+    // Count and sum of successful transactions sent (outgoing) or received by an account in [from, to)
+    public ActivitySummary summarizeByAccount(String accountNumber, boolean outgoing, LocalDateTime from,
+                                              LocalDateTime to) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.multiselect(cb.count(root), cb.sum(root.<BigDecimal>get("amount")))
+                .where(accountPredicates(cb, root, accountNumber, outgoing, from, to).toArray(new Predicate[0]));
+        Tuple result = session.createQuery(cq).getSingleResult();
+        Long count = result.get(0, Long.class);
+        BigDecimal total = result.get(1, BigDecimal.class);
+        return new ActivitySummary(count == null ? 0L : count, total == null ? BigDecimal.ZERO : total);
+    }
+    
+    // Adds the archived part of the range (mostly from the daily rollups) when includeArchived is set
+    public ActivitySummary summarizeByAccount(String accountNumber, boolean outgoing, LocalDateTime from,
+                                              LocalDateTime to, boolean includeArchived) {
+        ActivitySummary summary = summarizeByAccount(accountNumber, outgoing, from, to);
+        if (!includeArchived) {
+            return summary;
+        }
+        LocalDateTime newestArchived = archiveRepository.findNewestTimestamp();
+        if (newestArchived == null || from != null && from.isAfter(newestArchived)) {
+            return summary;
+        }
+        return summary.plus(archiveRepository.summarizeByAccount(accountNumber, outgoing, from, to));
+    }
+    
+    // Oldest first, for TransactionArchiver
+    public List<Transaction> findOlderThan(LocalDateTime cutoff, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Transaction> cq = cb.createQuery(Transaction.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.select(root)
+                .where(cb.lessThan(root.<LocalDateTime>get("timestamp"), cutoff))
+                .orderBy(cb.asc(root.get("timestamp")), cb.asc(root.get("id")));
+        TypedQuery<Transaction> query = session.createQuery(cq);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+    
+    public int deleteByIds(Collection<Long> ids) {
+        Session session = sessionFactory.getCurrentSession();
+        return session.createQuery("delete from Transaction t where t.id in (:ids)")
+                .setParameterList("ids", ids)
+                .executeUpdate();
+    }
+    
+    // Highest id among transactions older than the given time; null if there are none
+    public Long findMaxIdBefore(LocalDateTime before, boolean includeArchived) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.select(cb.max(root.<Long>get("id")))
+                .where(cb.lessThan(root.<LocalDateTime>get("timestamp"), before));
+        Long maxId = session.createQuery(cq).getSingleResult();
+        if (includeArchived) {
+            Long archivedMaxId = archiveRepository.findMaxIdBefore(before);
+            if (maxId == null || archivedMaxId != null && archivedMaxId > maxId) {
+                maxId = archivedMaxId;
+            }
+        }
+        return maxId;
+    }
+    
+    // Total of successful transactions with id > afterId sent (outgoing) or received by each account in
+    // (afterAccountNumber, lastAccountNumber]. A primary key range scan when afterId is recent.
+    public Map<String, BigDecimal> sumByAccountAfter(boolean outgoing, long afterId, String afterAccountNumber,
+                                                     String lastAccountNumber, boolean includeArchived) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Transaction> root = cq.from(Transaction.class);
+        Path<String> account = root.get(outgoing ? "fromAccount" : "toAccount");
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.greaterThan(root.<Long>get("id"), afterId));
+        predicates.add(cb.equal(root.get("status"), TransactionStatus.SUCCESS));
+        if (afterAccountNumber != null) {
+            predicates.add(cb.greaterThan(account, afterAccountNumber));
+        }
+        if (lastAccountNumber != null) {
+            predicates.add(cb.lessThanOrEqualTo(account, lastAccountNumber));
+        }
+        cq.multiselect(account, cb.sum(root.<BigDecimal>get("amount")))
+                .where(predicates.toArray(new Predicate[0]))
+                .groupBy(account);
+        Map<String, BigDecimal> totals = new HashMap<>();
+        for (Tuple row : session.createQuery(cq).getResultList()) {
+            totals.put(row.get(0, String.class), row.get(1, BigDecimal.class));
+        }
+        if (includeArchived) {
+            archiveRepository.sumByAccountAfter(outgoing, afterId, afterAccountNumber, lastAccountNumber)
+                    .forEach((accountNumber, total) -> totals.merge(accountNumber, total, BigDecimal::add));
+        }
+        return totals;
+    }
+    
+    private List<Predicate> accountPredicates(CriteriaBuilder cb, Root<Transaction> root, String accountNumber,
+                                              boolean outgoing, LocalDateTime from, LocalDateTime to) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get(outgoing ? "fromAccount" : "toAccount"), accountNumber));
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.<LocalDateTime>get("timestamp"), from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(root.<LocalDateTime>get("timestamp"), to));
+        }
+        predicates.add(cb.equal(root.get("status"), TransactionStatus.SUCCESS));
+        return predicates;
+    }
+    
+    // Newest first; served by idx_transactions_status_timestamp
+    public List<Transaction> findByStatusSince(TransactionStatus status, LocalDateTime since, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Transaction> cq = cb.createQuery(Transaction.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.select(root)
+                .where(cb.equal(root.get("status"), status),
+                        cb.greaterThanOrEqualTo(root.<LocalDateTime>get("timestamp"), since))
+                .orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        TypedQuery<Transaction> query = session.createQuery(cq);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+    
+    public long countByStatusSince(TransactionStatus status, LocalDateTime since) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.select(cb.count(root))
+                .where(cb.equal(root.get("status"), status),
+                        cb.greaterThanOrEqualTo(root.<LocalDateTime>get("timestamp"), since));
+        return session.createQuery(cq).getSingleResult();
+    }
+}
+
+// TransactionArchiveRepository.java
+package com.example.banking.repository;
+
+import com.example.banking.entity.AccountDailyActivity;
+import com.example.banking.entity.AccountDay;
+import com.example.banking.entity.ArchivedTransaction;
+import com.example.banking.entity.Transaction;
+import com.example.banking.entity.TransactionStatus;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// transactions_archive and its daily rollups; queries return detached Transaction objects
+@Repository
+public class TransactionArchiveRepository {
+    
+    private final SessionFactory sessionFactory;
+    
+    @Autowired
+    public TransactionArchiveRepository(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+    
+    // Copies the rows into the archive and adds their successful transfers to the daily rollups;
+    // the caller deletes the originals in the same transaction
+    public void archive(List<Transaction> transactions) {
+        Session session = sessionFactory.getCurrentSession();
+        Map<AccountDay, AccountDailyActivity> deltas = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            session.save(new ArchivedTransaction(transaction));
+            if (transaction.getStatus() == TransactionStatus.SUCCESS) {
+                LocalDate date = transaction.getTimestamp().toLocalDate();
+                deltas.computeIfAbsent(new AccountDay(transaction.getFromAccount(), date), AccountDailyActivity::new)
+                        .addOutgoing(transaction.getAmount());
+                deltas.computeIfAbsent(new AccountDay(transaction.getToAccount(), date), AccountDailyActivity::new)
+                        .addIncoming(transaction.getAmount());
+            }
+        }
+        if (!deltas.isEmpty()) {
+            Map<AccountDay, AccountDailyActivity> existing = findDailyActivity(deltas.keySet());
+            for (AccountDailyActivity delta : deltas.values()) {
+                AccountDailyActivity current = existing.get(delta.getId());
+                if (current == null) {
+                    session.save(delta);
+                } else {
+                    current.add(delta);
+                }
+            }
+        }
+        session.flush();
+    }
+    
+    // One query for the accounts and date span involved, narrowed to the exact keys in memory
+    private Map<AccountDay, AccountDailyActivity> findDailyActivity(Set<AccountDay> keys) {
+        Set<String> accountNumbers = new HashSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (AccountDay key : keys) {
+            accountNumbers.add(key.getAccountNumber());
+            first = first == null || key.getActivityDate().isBefore(first) ? key.getActivityDate() : first;
+            last = last == null || key.getActivityDate().isAfter(last) ? key.getActivityDate() : last;
+        }
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<AccountDailyActivity> cq = cb.createQuery(AccountDailyActivity.class);
+        Root<AccountDailyActivity> root = cq.from(AccountDailyActivity.class);
+        cq.select(root).where(root.get("id").get("accountNumber").in(accountNumbers),
+                cb.between(root.get("id").<LocalDate>get("activityDate"), first, last));
+        Map<AccountDay, AccountDailyActivity> existing = new HashMap<>();
+        for (AccountDailyActivity activity : session.createQuery(cq).getResultList()) {
+            if (keys.contains(activity.getId())) {
+                existing.put(activity.getId(), activity);
+            }
+        }
+        return existing;
+    }
+    
+    // Every archived row is at or before this; null while the archive is empty
+    public LocalDateTime findNewestTimestamp() {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<LocalDateTime> cq = cb.createQuery(LocalDateTime.class);
+        Root<ArchivedTransaction> root = cq.from(ArchivedTransaction.class);
+        cq.select(cb.greatest(root.<LocalDateTime>get("timestamp")));
+        return session.createQuery(cq).getSingleResult();
+    }
+    
+    public Long findMaxIdBefore(LocalDateTime before) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<ArchivedTransaction> root = cq.from(ArchivedTransaction.class);
+        cq.select(cb.max(root.<Long>get("id")))
+                .where(cb.lessThan(root.<LocalDateTime>get("timestamp"), before));
+        return session.createQuery(cq).getSingleResult();
+    }
+    
+    // Same contract as TransactionRepository.sumByAccountAfter
+    public Map<String, BigDecimal> sumByAccountAfter(boolean outgoing, long afterId, String afterAccountNumber,
+                                                     String lastAccountNumber) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<ArchivedTransaction> root = cq.from(ArchivedTransaction.class);
+        Path<String> account = root.get(outgoing ? "fromAccount" : "toAccount");
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.greaterThan(root.<Long>get("id"), afterId));
+        predicates.add(cb.equal(root.get("status"), TransactionStatus.SUCCESS));
+        if (afterAccountNumber != null) {
+            predicates.add(cb.greaterThan(account, afterAccountNumber));
+        }
+        if (lastAccountNumber != null) {
+            predicates.add(cb.lessThanOrEqualTo(account, lastAccountNumber));
+        }
+        cq.multiselect(account, cb.sum(root.<BigDecimal>get("amount")))
+                .where(predicates.toArray(new Predicate[0]))
+                .groupBy(account);
+        Map<String, BigDecimal> totals = new HashMap<>();
+        for (Tuple row : session.createQuery(cq).getResultList()) {
+            totals.put(row.get(0, String.class), row.get(1, BigDecimal.class));
+        }
+        return totals;
+    }
+    
+    // Same keyset contract as TransactionRepository.findPage
+    public List<Transaction> findPage(LocalDateTime afterTimestamp, Long afterId, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<ArchivedTransaction> cq = cb.createQuery(ArchivedTransaction.class);
+        Root<ArchivedTransaction> root = cq.from(ArchivedTransaction.class);
+        cq.select(root);
+        if (afterTimestamp != null && afterId != null) {
+            cq.where(after(cb, root, afterTimestamp, afterId));
+        }
+        cq.orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        return toTransactions(session.createQuery(cq).setMaxResults(limit));
+    }
+    
+    // Same contract as TransactionRepository.findByAccount
+    public List<Transaction> findByAccount(String accountNumber, boolean outgoing, LocalDateTime from,
+                                           LocalDateTime to, LocalDateTime afterTimestamp, Long afterId, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<ArchivedTransaction> cq = cb.createQuery(ArchivedTransaction.class);
+        Root<ArchivedTransaction> root = cq.from(ArchivedTransaction.class);
+        List<Predicate> predicates = accountPredicates(cb, root, accountNumber, outgoing, from, to);
+        if (afterTimestamp != null && afterId != null) {
+            predicates.add(after(cb, root, afterTimestamp, afterId));
+        }
+        cq.select(root).where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        return toTransactions(session.createQuery(cq).setMaxResults(limit));
+    }
+    
+    // Whole days in [from, to) come from the daily rollups; only partial days at either end
+    // are summed from the archived rows
+    public ActivitySummary summarizeByAccount(String accountNumber, boolean outgoing, LocalDateTime from,
+                                              LocalDateTime to) {
+        LocalDate firstDay = from == null ? null : from.toLocalDate();
+        if (from != null && from.isAfter(firstDay.atStartOfDay())) {
+            firstDay = firstDay.plusDays(1);
+        }
+        LocalDate endDay = to == null ? null : to.toLocalDate();
+        if (firstDay != null && endDay != null && !firstDay.isBefore(endDay)) {
+            return summarizeRows(accountNumber, outgoing, from, to);
+        }
+        
+        ActivitySummary summary = summarizeDays(accountNumber, outgoing, firstDay, endDay);
+        if (from != null && from.isBefore(firstDay.atStartOfDay())) {
+            summary = summary.plus(summarizeRows(accountNumber, outgoing, from, firstDay.atStartOfDay()));
+        }
+        if (to != null && to.isAfter(endDay.atStartOfDay())) {
+            summary = summary.plus(summarizeRows(accountNumber, outgoing, endDay.atStartOfDay(), to));
+        }
+        return summary;
+    }
+    
+    private ActivitySummary summarizeDays(String accountNumber, boolean outgoing, LocalDate firstDay,
+                                          LocalDate endDay) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<AccountDailyActivity> root = cq.from(AccountDailyActivity.class);
+        Path<LocalDate> day = root.get("id").get("activityDate");
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get("id").get("accountNumber"), accountNumber));
+        if (firstDay != null) {
+            predicates.add(cb.greaterThanOrEqualTo(day, firstDay));
+        }
+        if (endDay != null) {
+            predicates.add(cb.lessThan(day, endDay));
+        }
+        cq.multiselect(cb.sum(root.<Long>get(outgoing ? "outgoingCount" : "incomingCount")),
+                        cb.sum(root.<BigDecimal>get(outgoing ? "outgoingTotal" : "incomingTotal")))
+                .where(predicates.toArray(new Predicate[0]));
+        return toSummary(session.createQuery(cq).getSingleResult());
+    }
+    
+    private ActivitySummary summarizeRows(String accountNumber, boolean outgoing, LocalDateTime from,
+                                          LocalDateTime to) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<ArchivedTransaction> root = cq.from(ArchivedTransaction.class);
+        cq.multiselect(cb.count(root), cb.sum(root.<BigDecimal>get("amount")))
+                .where(accountPredicates(cb, root, accountNumber, outgoing, from, to).toArray(new Predicate[0]));
+        return toSummary(session.createQuery(cq).getSingleResult());
+    }
+    
+    private static ActivitySummary toSummary(Tuple result) {
+        Long count = result.get(0, Long.class);
+        BigDecimal total = result.get(1, BigDecimal.class);
+        return new ActivitySummary(count == null ? 0L : count, total == null ? BigDecimal.ZERO : total);
+    }
+    
+    private static List<Predicate> accountPredicates(CriteriaBuilder cb, Root<ArchivedTransaction> root,
+                                                     String accountNumber, boolean outgoing, LocalDateTime from,
+                                                     LocalDateTime to) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get(outgoing ? "fromAccount" : "toAccount"), accountNumber));
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.<LocalDateTime>get("timestamp"), from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(root.<LocalDateTime>get("timestamp"), to));
+        }
+        predicates.add(cb.equal(root.get("status"), TransactionStatus.SUCCESS));
+        return predicates;
+    }
+    
+    private static Predicate after(CriteriaBuilder cb, Root<ArchivedTransaction> root, LocalDateTime afterTimestamp,
+                                   Long afterId) {
+        return cb.or(
+                cb.lessThan(root.<LocalDateTime>get("timestamp"), afterTimestamp),
+                cb.and(cb.equal(root.get("timestamp"), afterTimestamp),
+                        cb.lessThan(root.<Long>get("id"), afterId)));
+    }
+    
+    private static List<Transaction> toTransactions(TypedQuery<ArchivedTransaction> query) {
+        List<ArchivedTransaction> rows = query.getResultList();
+        List<Transaction> transactions = new ArrayList<>(rows.size());
+        for (ArchivedTransaction row : rows) {
+            transactions.add(row.toTransaction());
+        }
+        return transactions;
+    }
+}
+
+// BalanceSnapshotRepository.java
+package com.example.banking.repository;
+
+import com.example.banking.entity.BalanceSnapshot;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class BalanceSnapshotRepository {
+    
+    private final SessionFactory sessionFactory;
+    
+    @Autowired
+    public BalanceSnapshotRepository(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+    
+    public void save(BalanceSnapshot snapshot) {
+        sessionFactory.getCurrentSession().save(snapshot);
+    }
+    
+    // Single IN query; callers are expected to chunk large collections
+    public Map<String, BalanceSnapshot> findByAccountNumbers(Collection<String> accountNumbers) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<BalanceSnapshot> cq = cb.createQuery(BalanceSnapshot.class);
+        Root<BalanceSnapshot> root = cq.from(BalanceSnapshot.class);
+        cq.select(root).where(root.get("accountNumber").in(accountNumbers));
+        Map<String, BalanceSnapshot> snapshots = new HashMap<>();
+        for (BalanceSnapshot snapshot : session.createQuery(cq).getResultList()) {
+            snapshots.put(snapshot.getAccountNumber(), snapshot);
+        }
+        return snapshots;
+    }
+    
+    // Distinct snapshot positions among accounts in (afterAccountNumber, lastAccountNumber]; one per
+    // snapshot run still represented, so normally a single value
+    public List<Long> findLastTransactionIds(String afterAccountNumber, String lastAccountNumber) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<BalanceSnapshot> root = cq.from(BalanceSnapshot.class);
+        List<Predicate> predicates = new ArrayList<>();
+        if (afterAccountNumber != null) {
+            predicates.add(cb.greaterThan(root.get("accountNumber"), afterAccountNumber));
+        }
+        if (lastAccountNumber != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("accountNumber"), lastAccountNumber));
+        }
+        cq.select(root.<Long>get("lastTransactionId")).distinct(true).where(predicates.toArray(new Predicate[0]));
+        return session.createQuery(cq).getResultList();
+    }
+    
+    // Writes pending changes and empties the session so long reconciliation runs stay flat in memory
+    public void flushAndClear() {
+        Session session = sessionFactory.getCurrentSession();
+        session.flush();
+        session.clear();
+    }
+}
+
+// LedgerCheckpointRepository.java
+package com.example.banking.repository;
+
+import com.example.banking.entity.LedgerCheckpoint;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class LedgerCheckpointRepository {
+    
+    private final SessionFactory sessionFactory;
+    
+    @Autowired
+    public LedgerCheckpointRepository(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+    
+    public void save(LedgerCheckpoint checkpoint) {
+        Session session = sessionFactory.getCurrentSession();
+        session.saveOrUpdate(checkpoint);
+    }
+    
+    public List<LedgerCheckpoint> findAll() {
+        Session session = sessionFactory.getCurrentSession();
+        return session.createQuery("from LedgerCheckpoint", LedgerCheckpoint.class).getResultList();
+    }
+}
+
+// TransferAuditRepository.java
+package com.example.banking.repository;
+
+import com.example.banking.entity.TransactionStatus;
+import com.example.banking.entity.TransferAudit;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public class TransferAuditRepository {
+    
+    private final SessionFactory sessionFactory;
+    
+    @Autowired
+    public TransferAuditRepository(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+    
+    // Inserts go out as one JDBC batch on flush
+    public void saveAll(Collection<TransferAudit> records) {
+        Session session = sessionFactory.getCurrentSession();
+        for (TransferAudit record : records) {
+            session.save(record);
+        }
+        session.flush();
+        session.clear();
+    }
+    
+    // Newest first
+    public List<TransferAudit> findRecent(int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<TransferAudit> cq = cb.createQuery(TransferAudit.class);
+        Root<TransferAudit> root = cq.from(TransferAudit.class);
+        cq.select(root).orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        TypedQuery<TransferAudit> query = session.createQuery(cq);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+    
+    // Newest first; served by idx_transfer_audit_status_timestamp
+    public List<TransferAudit> findByStatusSince(TransactionStatus status, LocalDateTime since, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<TransferAudit> cq = cb.createQuery(TransferAudit.class);
+        Root<TransferAudit> root = cq.from(TransferAudit.class);
+        cq.select(root)
+                .where(cb.equal(root.get("status"), status),
+                        cb.greaterThanOrEqualTo(root.<LocalDateTime>get("timestamp"), since))
+                .orderBy(cb.desc(root.get("timestamp")), cb.desc(root.get("id")));
+        TypedQuery<TransferAudit> query = session.createQuery(cq);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+}
+
+// ActivitySummary.java
+package com.example.banking.repository;
+
+import java.math.BigDecimal;
+
+public class ActivitySummary {
+    
+    private final long count;
+    private final BigDecimal total;
+    
+    public ActivitySummary(long count, BigDecimal total) {
+        this.count = count;
+        this.total = total;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public BigDecimal getTotal() {
+        return total;
+    }
+    
+    public ActivitySummary plus(ActivitySummary other) {
+        return new ActivitySummary(count + other.count, total.add(other.total));
+    }
+    
+    @Override
+    public String toString() {
+        return "ActivitySummary{" +
+                "count=" + count +
+                ", total=" + total +
+                '}';
+    }
+}
+
+// AccountCache.java
+package com.example.banking.cache;
+
+import com.example.banking.config.BankingProperties;
+import com.example.banking.entity.Account;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-through cache of account snapshots in front of BankingService, so a warm balance
+// inquiry needs neither a transaction nor a connection. Entries are replaced only by a higher
+// @Version, which keeps a slow reader from overwriting what a committed transfer published.
+// Callers always get their own copy. Misses load through Hibernate, whose second-level Account
+// region (hibernate.cache.account.*, AppConfig) is a separate, longer-lived layer underneath.
+@Component
+public class AccountCache implements AutoCloseable {
+    
+    private final boolean enabled;
+    private final CacheManager cacheManager;
+    private final Cache<String, Account> byNumber;
+    private final Cache<Long, String> numberById;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    
+    @Autowired
+    public AccountCache(BankingProperties properties) {
+        this.enabled = properties.isCacheEnabled();
+        long maxEntries = Math.max(1L, properties.getCacheMaxEntries());
+        Duration ttl = Duration.ofSeconds(Math.max(1L, properties.getCacheTtlSeconds()));
+        this.cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .withCache("accounts-by-number", CacheConfigurationBuilder
+                        .newCacheConfigurationBuilder(String.class, Account.class, ResourcePoolsBuilder.heap(maxEntries))
+                        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl)))
+                .withCache("account-numbers-by-id", CacheConfigurationBuilder
+                        .newCacheConfigurationBuilder(Long.class, String.class, ResourcePoolsBuilder.heap(maxEntries)))
+                .build(true);
+        this.byNumber = cacheManager.getCache("accounts-by-number", String.class, Account.class);
+        this.numberById = cacheManager.getCache("account-numbers-by-id", Long.class, String.class);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public Optional<Account> get(String accountNumber) {
+        Account cached = enabled && accountNumber != null ? byNumber.get(accountNumber) : null;
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(copyOf(cached));
+    }
+    
+    public Optional<Account> get(Long id) {
+        String accountNumber = enabled && id != null ? numberById.get(id) : null;
+        if (accountNumber == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        return get(accountNumber);
+    }
+    
+    // Stores a snapshot of a freshly read account unless a newer version is already cached
+    public void put(Account account) {
+        if (!enabled || account == null || account.getAccountNumber() == null) {
+            return;
+        }
+        Account snapshot = copyOf(account);
+        while (true) {
+            Account current = byNumber.putIfAbsent(snapshot.getAccountNumber(), snapshot);
+            if (current == null || versionOf(current) >= versionOf(snapshot)
+                    || byNumber.replace(snapshot.getAccountNumber(), current, snapshot)) {
+                break;
+            }
+        }
+        if (snapshot.getId() != null) {
+            numberById.put(snapshot.getId(), snapshot.getAccountNumber());
+        }
+    }
+    
+    public void putAll(Collection<Account> accounts) {
+        for (Account account : accounts) {
+            put(account);
+        }
+    }
+    
+    // Publishes the accounts' committed state once the surrounding transaction commits;
+    // nothing happens on rollback
+    public void updateAfterCommit(Collection<Account> accounts) {
+        if (!enabled || accounts.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        List<Account> changed = new ArrayList<>(accounts);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                updates.add(changed.size());
+                putAll(changed);
+            }
+        });
+    }
+    
+    public long getHitCount() {
+        return hits.sum();
+    }
+    
+    public long getMissCount() {
+        return misses.sum();
+    }
+    
+    public long getUpdateCount() {
+        return updates.sum();
+    }
+    
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+    
+    @Override
+    public void close() {
+        cacheManager.close();
+    }
+    
+    private static Account copyOf(Account account) {
+        Account copy = new Account(account.getAccountNumber(), account.getOwnerName(), account.getBalance());
+        copy.setId(account.getId());
+        copy.setVersion(account.getVersion());
+        return copy;
+    }
+    
+    private static long versionOf(Account account) {
+        return account.getVersion() == null ? -1L : account.getVersion();
+    }
+    
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return "AccountCache{disabled}";
+        }
+        return "AccountCache{" +
+                "hits=" + hits.sum() +
+                ", misses=" + misses.sum() +
+                ", hitRatio=" + String.format("%.2f", getHitRatio()) +
+                ", updates=" + updates.sum() +
+                '}';
+    }
+}
+
+// InsufficientFundsException.java
+package com.example.banking.exception;
+
+public class InsufficientFundsException extends Exception {
+    
+    // Expected business failure: no stack trace, which is most of the cost of throwing
+    public InsufficientFundsException(String message) {
+        super(message, null, false, false);
+    }
+}
+
+// AccountNotFoundException.java
+package com.example.banking.exception;
+
+public class AccountNotFoundException extends Exception {
+    
+    public AccountNotFoundException(String message) {
+        super(message, null, false, false);
+    }
+}
+
+// LockingStrategy.java
+package com.example.banking.service;
+
+public enum LockingStrategy {
+    // SELECT ... FOR UPDATE on both accounts, taken in account number order
+    PESSIMISTIC,
+    // Plain reads; conflicting writers fail the @Version check on flush and are retried
+    OPTIMISTIC
+}
+
+// TransferRetryPolicy.java
+package com.example.banking.service;
+
+import com.example.banking.config.BankingProperties;
+import org.hibernate.PessimisticLockException;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.LockTimeoutException;
+import javax.persistence.OptimisticLockException;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class TransferRetryPolicy {
+    
+    // MySQL: ER_LOCK_DEADLOCK, ER_LOCK_WAIT_TIMEOUT
+    private static final int MYSQL_DEADLOCK = 1213;
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+    
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    
+    @Autowired
+    public TransferRetryPolicy(BankingProperties properties) {
+        this.maxAttempts = Math.max(1, properties.getTransferMaxAttempts());
+        this.initialBackoffMs = Math.max(0L, properties.getTransferBackoffInitialMs());
+        this.maxBackoffMs = Math.max(initialBackoffMs, properties.getTransferBackoffMaxMs());
+    }
+    
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+    
+    // True (after backing off) if the failed attempt should be run again
+    public boolean shouldRetry(RuntimeException error, int attempt) {
+        return attempt < maxAttempts && isRetryable(error) && backoff(attempt);
+    }
+    
+    public boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof TransientDataAccessException
+                    || cause instanceof LockAcquisitionException
+                    || cause instanceof PessimisticLockException
+                    || cause instanceof StaleStateException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof javax.persistence.PessimisticLockException
+                    || cause instanceof LockTimeoutException
+                    || cause instanceof SQLTransientException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                String sqlState = sqlException.getSQLState();
+                if ((sqlState != null && sqlState.startsWith("40"))
+                        || sqlException.getErrorCode() == MYSQL_DEADLOCK
+                        || sqlException.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT) {
+                    return true;
+                }
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+    
+    // Exponential backoff with full jitter; returns false if the thread was interrupted
+    public boolean backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
+
+// TransferStatus.java
+package com.example.banking.service;
+
+public enum TransferStatus {
+    SUCCESS,
+    INVALID_AMOUNT,
+    // Source and destination are the same account
+    SAME_ACCOUNT,
+    ACCOUNT_NOT_FOUND,
+    INSUFFICIENT_FUNDS,
+    // Ledger mode only: the engine is stopped or saturated
+    REJECTED
+}
+
+// TransferOutcome.java
+package com.example.banking.service;
+
+// Result of BankingService.tryTransferMoney; business failures are reported here instead of thrown
+public class TransferOutcome {
+    
+    private final TransferStatus status;
+    private final String accountNumber;
+    private final Long transactionId;
+    
+    public TransferOutcome(TransferStatus status, String accountNumber, Long transactionId) {
+        this.status = status;
+        this.accountNumber = accountNumber;
+        this.transactionId = transactionId;
+    }
+    
+    public static TransferOutcome success(Long transactionId) {
+        return new TransferOutcome(TransferStatus.SUCCESS, null, transactionId);
+    }
+    
+    public static TransferOutcome failure(TransferStatus status, String accountNumber) {
+        return new TransferOutcome(status, accountNumber, null);
+    }
+    
+    public TransferStatus getStatus() {
+        return status;
+    }
+    
+    // The account a failure refers to (missing or short of funds), if any
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    // Null on failure, and in ledger mode where the row is written behind
+    public Long getTransactionId() {
+        return transactionId;
+    }
+    
+    public boolean isSuccessful() {
+        return status == TransferStatus.SUCCESS;
+    }
+    
+    public String getMessage() {
+        switch (status) {
+            case SUCCESS:
+                return "Transfer completed";
+            case INVALID_AMOUNT:
+                return "Transfer amount must be positive";
+            case SAME_ACCOUNT:
+                return "Cannot transfer from account " + accountNumber + " to itself";
+            case ACCOUNT_NOT_FOUND:
+                return "Account with number " + accountNumber + " not found";
+            case INSUFFICIENT_FUNDS:
+                return "Insufficient funds in account " + accountNumber;
+            default:
+                return "Transfer rejected; the ledger is stopped or saturated";
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "TransferOutcome{" +
+                "status=" + status +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", transactionId=" + transactionId +
+                '}';
+    }
+}
+
+// Payout.java
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+
+public class Payout {
+    
+    private final String toAccountNumber;
+    private final BigDecimal amount;
+    
+    public Payout(String toAccountNumber, BigDecimal amount) {
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+    }
+    
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    @Override
+    public String toString() {
+        return "Payout{" +
+                "toAccountNumber='" + toAccountNumber + '\'' +
+                ", amount=" + amount +
+                '}';
+    }
+}
+
+// PayoutStatus.java
+package com.example.banking.service;
+
+public enum PayoutStatus {
+    SUCCESS,
+    INVALID_PAYOUT,
+    SAME_ACCOUNT,
+    ACCOUNT_NOT_FOUND,
+    INSUFFICIENT_FUNDS
+}
+
+// PayoutResult.java
+package com.example.banking.service;
+
+public class PayoutResult {
+    
+    private final Payout payout;
+    private final PayoutStatus status;
+    private final Long transactionId;
+    
+    public PayoutResult(Payout payout, PayoutStatus status, Long transactionId) {
+        this.payout = payout;
+        this.status = status;
+        this.transactionId = transactionId;
+    }
+    
+    public Payout getPayout() {
+        return payout;
+    }
+    
+    public PayoutStatus getStatus() {
+        return status;
+    }
+    
+    public Long getTransactionId() {
+        return transactionId;
+    }
+    
+    public boolean isSuccessful() {
+        return status == PayoutStatus.SUCCESS;
+    }
+    
+    @Override
+    public String toString() {
+        return "PayoutResult{" +
+                "payout=" + payout +
+                ", status=" + status +
+                ", transactionId=" + transactionId +
+                '}';
+    }
+}
+
+// DisbursementResult.java
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+public class DisbursementResult {
+    
+    private final String fromAccountNumber;
+    private final List<PayoutResult> results;
+    private final BigDecimal totalDisbursed;
+    
+    public DisbursementResult(String fromAccountNumber, List<PayoutResult> results, BigDecimal totalDisbursed) {
+        this.fromAccountNumber = fromAccountNumber;
+        this.results = Collections.unmodifiableList(results);
+        this.totalDisbursed = totalDisbursed;
+    }
+    
+    public String getFromAccountNumber() {
+        return fromAccountNumber;
+    }
+    
+    public List<PayoutResult> getResults() {
+        return results;
+    }
+    
+    public BigDecimal getTotalDisbursed() {
+        return totalDisbursed;
+    }
+    
+    public int getSuccessCount() {
+        int count = 0;
+        for (PayoutResult result : results) {
+            if (result.isSuccessful()) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    public int getFailureCount() {
+        return results.size() - getSuccessCount();
+    }
+    
+    @Override
+    public String toString() {
+        return "DisbursementResult{" +
+                "fromAccountNumber='" + fromAccountNumber + '\'' +
+                ", payouts=" + results.size() +
+                ", succeeded=" + getSuccessCount() +
+                ", failed=" + getFailureCount() +
+                ", totalDisbursed=" + totalDisbursed +
+                '}';
+    }
+}
+
+// TransactionCursor.java
+package com.example.banking.service;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Keyset position in the newest-first (timestamp, id) transaction order
+public class TransactionCursor {
+    
+    private final LocalDateTime timestamp;
+    private final Long id;
+    
+    public TransactionCursor(LocalDateTime timestamp, Long id) {
+        this.timestamp = Objects.requireNonNull(timestamp, "timestamp");
+        this.id = Objects.requireNonNull(id, "id");
+    }
+    
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    @Override
+    public String toString() {
+        return "TransactionCursor{" +
+                "timestamp=" + timestamp +
+                ", id=" + id +
+                '}';
+    }
+}
+
+// TransactionPage.java
+package com.example.banking.service;
+
+import com.example.banking.entity.Transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+public class TransactionPage {
+    
+    private final List<Transaction> items;
+    private final TransactionCursor next;
+    
+    public TransactionPage(List<Transaction> items, TransactionCursor next) {
+        this.items = Collections.unmodifiableList(items);
+        this.next = next;
+    }
+    
+    public List<Transaction> getItems() {
+        return items;
+    }
+    
+    // Cursor for the following page, or null if this is the last page
+    public TransactionCursor getNext() {
+        return next;
+    }
+    
+    public boolean hasNext() {
+        return next != null;
+    }
+}
+
+// StatementDirection.java
+package com.example.banking.service;
+
+public enum StatementDirection {
+    INCOMING,
+    OUTGOING,
+    ALL
+}
+
+// AccountStatement.java
+package com.example.banking.service;
+
+import com.example.banking.entity.Transaction;
+import com.example.banking.repository.ActivitySummary;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+public class AccountStatement {
+    
+    private final String accountNumber;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final StatementDirection direction;
+    private final List<Transaction> entries;
+    private final TransactionCursor next;
+    private final ActivitySummary incoming;
+    private final ActivitySummary outgoing;
+    
+    public AccountStatement(String accountNumber, LocalDateTime from, LocalDateTime to, StatementDirection direction,
+                            List<Transaction> entries, TransactionCursor next,
+                            ActivitySummary incoming, ActivitySummary outgoing) {
+        this.accountNumber = accountNumber;
+        this.from = from;
+        this.to = to;
+        this.direction = direction;
+        this.entries = Collections.unmodifiableList(entries);
+        this.next = next;
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    
+    public LocalDateTime getTo() {
+        return to;
+    }
+    
+    public StatementDirection getDirection() {
+        return direction;
+    }
+    
+    public List<Transaction> getEntries() {
+        return entries;
+    }
+    
+    // Cursor for the next page of entries, or null if this is the last page
+    public TransactionCursor getNext() {
+        return next;
+    }
+    
+    public ActivitySummary getIncoming() {
+        return incoming;
+    }
+    
+    public ActivitySummary getOutgoing() {
+        return outgoing;
+    }
+    
+    public BigDecimal getNetChange() {
+        return incoming.getTotal().subtract(outgoing.getTotal());
+    }
+    
+    @Override
+    public String toString() {
+        return "AccountStatement{" +
+                "accountNumber='" + accountNumber + '\'' +
+                ", from=" + from +
+                ", to=" + to +
+                ", direction=" + direction +
+                ", entries=" + entries.size() +
+                ", incoming=" + incoming +
+                ", outgoing=" + outgoing +
+                ", net=" + getNetChange() +
+                '}';
+    }
+}
+
+// TransferProcessor.java
+package com.example.banking.service;
+
+import com.example.banking.cache.AccountCache;
+import com.example.banking.config.BankingProperties;
+import com.example.banking.entity.Account;
+import com.example.banking.entity.FailureReason;
+import com.example.banking.entity.Money;
+import com.example.banking.entity.Transaction;
+import com.example.banking.entity.TransactionStatus;
+import com.example.banking.exception.AccountNotFoundException;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Runs a single transfer attempt in one transaction; BankingService retries it on lock conflicts
+@Service
+public class TransferProcessor {
+    
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountCache accountCache;
+    private final LockingStrategy lockingStrategy;
+    private final int chunkSize;
+    
+    @Autowired
+    public TransferProcessor(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                             AccountCache accountCache, BankingProperties properties) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountCache = accountCache;
+        this.lockingStrategy = properties.getTransferLockingStrategy();
+        this.chunkSize = Math.max(1, properties.getBatchChunkSize());
+    }
+    
+    // Business failures are returned, not thrown. Their FAILED rows used to be rolled back together
+    // with the exception anyway, so nothing is written for them now.
+    @Transactional
+    public TransferOutcome transfer(String fromAccountNumber, String toAccountNumber, Money amount) {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            return TransferOutcome.failure(TransferStatus.SAME_ACCOUNT, fromAccountNumber);
+        }
+        
+        // Retrieve the accounts, always in account number order to avoid A->B / B->A deadlocks
+        boolean fromFirst = fromAccountNumber.compareTo(toAccountNumber) <= 0;
+        String firstNumber = fromFirst ? fromAccountNumber : toAccountNumber;
+        String secondNumber = fromFirst ? toAccountNumber : fromAccountNumber;
+        Optional<Account> first = loadAccount(firstNumber);
+        if (!first.isPresent()) {
+            return TransferOutcome.failure(TransferStatus.ACCOUNT_NOT_FOUND, firstNumber);
+        }
+        Optional<Account> second = loadAccount(secondNumber);
+        if (!second.isPresent()) {
+            return TransferOutcome.failure(TransferStatus.ACCOUNT_NOT_FOUND, secondNumber);
+        }
+        Account fromAccount = fromFirst ? first.get() : second.get();
+        Account toAccount = fromFirst ? second.get() : first.get();
+        
+        // Check for sufficient funds
+        if (fromAccount.getBalance().isLessThan(amount)) {
+            return TransferOutcome.failure(TransferStatus.INSUFFICIENT_FUNDS, fromAccountNumber);
+        }
+        
+        // Perform the transfer
+        fromAccount.setBalance(fromAccount.getBalance().minus(amount));
+        toAccount.setBalance(toAccount.getBalance().plus(amount));
+        
+        // Save the updated accounts
+        accountRepository.save(fromAccount);
+        accountRepository.save(toAccount);
+        
+        // Record the transaction
+        Transaction transaction = new Transaction(fromAccountNumber, toAccountNumber, amount.toBigDecimal());
+        transaction.setStatus(TransactionStatus.SUCCESS);
+        transactionRepository.save(transaction);
+        accountCache.updateAfterCommit(Arrays.asList(fromAccount, toAccount));
+        return TransferOutcome.success(transaction.getId());
+    }
+    
+    @Transactional(rollbackFor = AccountNotFoundException.class)
+    public DisbursementResult disburse(String fromAccountNumber, List<Payout> payouts)
+            throws AccountNotFoundException {
+        
+        Optional<Account> found = lockingStrategy == LockingStrategy.PESSIMISTIC
+                ? lockInOrder(fromAccountNumber, payouts)
+                : accountRepository.findByAccountNumber(fromAccountNumber);
+        Account source = found.orElseThrow(
+                () -> new AccountNotFoundException("Account with number " + fromAccountNumber + " not found"));
+        Money available = source.getBalance();
+        Money disbursed = Money.ZERO;
+        List<PayoutResult> results = new ArrayList<>(payouts.size());
+        Map<String, Account> credited = new HashMap<>();
+        
+        for (int start = 0; start < payouts.size(); start += chunkSize) {
+            List<Payout> chunk = payouts.subList(start, Math.min(start + chunkSize, payouts.size()));
+            Map<String, Account> destinations = findDestinations(chunk, fromAccountNumber);
+            List<Transaction> records = new ArrayList<>(chunk.size());
+            List<PayoutStatus> statuses = new ArrayList<>(chunk.size());
+            
+            for (Payout payout : chunk) {
+                PayoutStatus status;
+                Account destination = destinations.get(payout.getToAccountNumber());
+                Money amount = toMoney(payout.getAmount());
+                if (payout.getToAccountNumber() == null || amount == null || amount.signum() <= 0) {
+                    status = PayoutStatus.INVALID_PAYOUT;
+                } else if (payout.getToAccountNumber().equals(fromAccountNumber)) {
+                    status = PayoutStatus.SAME_ACCOUNT;
+                } else if (destination == null) {
+                    status = PayoutStatus.ACCOUNT_NOT_FOUND;
+                } else if (available.minus(disbursed).isLessThan(amount)) {
+                    status = PayoutStatus.INSUFFICIENT_FUNDS;
+                } else {
+                    destination.setBalance(destination.getBalance().plus(amount));
+                    credited.put(destination.getAccountNumber(), destination);
+                    disbursed = disbursed.plus(amount);
+                    status = PayoutStatus.SUCCESS;
+                }
+                statuses.add(status);
+                records.add(status == PayoutStatus.INVALID_PAYOUT ? null : createRecord(fromAccountNumber, payout, status));
+            }
+            
+            // One flush per chunk sends the transaction inserts and balance updates as JDBC batches
+            List<Transaction> toSave = new ArrayList<>(records.size());
+            for (Transaction record : records) {
+                if (record != null) {
+                    toSave.add(record);
+                }
+            }
+            transactionRepository.saveAll(toSave);
+            
+            for (int i = 0; i < chunk.size(); i++) {
+                Transaction record = records.get(i);
+                results.add(new PayoutResult(chunk.get(i), statuses.get(i), record == null ? null : record.getId()));
+            }
+            
+            // Keep the persistence context bounded; the source account stays managed
+            for (Transaction record : toSave) {
+                transactionRepository.detach(record);
+            }
+            for (Account destination : destinations.values()) {
+                accountRepository.detach(destination);
+            }
+        }
+        
+        // Debit the source once for the whole batch
+        if (disbursed.signum() > 0) {
+            source.setBalance(source.getBalance().minus(disbursed));
+            accountRepository.save(source);
+            credited.put(source.getAccountNumber(), source);
+        }
+        accountCache.updateAfterCommit(credited.values());
+        return new DisbursementResult(fromAccountNumber, results, disbursed.toBigDecimal());
+    }
+    
+    // Locks the source and every destination up front in one ascending account number pass, the
+    // global order transfer uses, so a batch cannot deadlock against transfers or other batches.
+    // The price is a second FOR UPDATE read of each destination chunk below; it returns at once
+    // because the rows are already locked, and it lets the locked rows be detached here so the
+    // persistence context stays bounded by the chunk size.
+    private Optional<Account> lockInOrder(String fromAccountNumber, List<Payout> payouts) {
+        Set<String> sorted = new TreeSet<>();
+        sorted.add(fromAccountNumber);
+        for (Payout payout : payouts) {
+            if (payout.getToAccountNumber() != null) {
+                sorted.add(payout.getToAccountNumber());
+            }
+        }
+        List<String> accountNumbers = new ArrayList<>(sorted);
+        Account source = null;
+        for (int start = 0; start < accountNumbers.size(); start += chunkSize) {
+            List<String> chunk = accountNumbers.subList(start, Math.min(start + chunkSize, accountNumbers.size()));
+            for (Account account : accountRepository.findByAccountNumbers(chunk, true)) {
+                if (account.getAccountNumber().equals(fromAccountNumber)) {
+                    source = account;
+                } else {
+                    accountRepository.detach(account);
+                }
+            }
+        }
+        return Optional.ofNullable(source);
+    }
+    
+    private Map<String, Account> findDestinations(List<Payout> chunk, String fromAccountNumber) {
+        Set<String> accountNumbers = new LinkedHashSet<>();
+        for (Payout payout : chunk) {
+            if (payout.getToAccountNumber() != null && !payout.getToAccountNumber().equals(fromAccountNumber)) {
+                accountNumbers.add(payout.getToAccountNumber());
+            }
+        }
+        Map<String, Account> destinations = new HashMap<>();
+        if (accountNumbers.isEmpty()) {
+            return destinations;
+        }
+        boolean forUpdate = lockingStrategy == LockingStrategy.PESSIMISTIC;
+        for (Account account : accountRepository.findByAccountNumbers(accountNumbers, forUpdate)) {
+            destinations.put(account.getAccountNumber(), account);
+        }
+        return destinations;
+    }
+    
+    private Transaction createRecord(String fromAccountNumber, Payout payout, PayoutStatus status) {
+        Transaction record = new Transaction(fromAccountNumber, payout.getToAccountNumber(), payout.getAmount());
+        if (status == PayoutStatus.SUCCESS) {
+            record.setStatus(TransactionStatus.SUCCESS);
+            return record;
+        }
+        record.setStatus(TransactionStatus.FAILED);
+        switch (status) {
+            case INSUFFICIENT_FUNDS:
+                record.setFailureReason(FailureReason.INSUFFICIENT_FUNDS);
+                break;
+            case ACCOUNT_NOT_FOUND:
+                record.setFailureReason(FailureReason.ACCOUNT_NOT_FOUND);
+                break;
+            case SAME_ACCOUNT:
+                record.setFailureReason(FailureReason.SAME_ACCOUNT);
+                break;
+            default:
+                record.setFailureReason(FailureReason.INVALID_AMOUNT);
+                break;
+        }
+        return record;
+    }
+    
+    // Null for missing amounts and fractions of a cent; both are reported as INVALID_PAYOUT
+    private static Money toMoney(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        try {
+            return Money.of(amount);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+    
+    private Optional<Account> loadAccount(String accountNumber) {
+        if (lockingStrategy == LockingStrategy.PESSIMISTIC) {
+            return accountRepository.findByAccountNumberForUpdate(accountNumber);
+        }
+        return accountRepository.findByAccountNumber(accountNumber);
+    }
+}
+
+// ArchiveStore.java
+package com.example.banking.archive;
+
+import com.example.banking.entity.Transaction;
+import com.example.banking.repository.TransactionArchiveRepository;
+import com.example.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class ArchiveStore {
+    
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchiveRepository archiveRepository;
+    
+    @Autowired
+    public ArchiveStore(TransactionRepository transactionRepository,
+                        TransactionArchiveRepository archiveRepository) {
+        this.transactionRepository = transactionRepository;
+        this.archiveRepository = archiveRepository;
+    }
+    
+    // Copies and deletes in one transaction, so a row is always in exactly one tier
+    @Transactional
+    public int archiveChunk(LocalDateTime cutoff, int limit) {
+        List<Transaction> transactions = transactionRepository.findOlderThan(cutoff, limit);
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+        archiveRepository.archive(transactions);
+        List<Long> ids = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getId());
+        }
+        transactionRepository.deleteByIds(ids);
+        return transactions.size();
+    }
+}
+
+// TransactionArchiver.java
+package com.example.banking.archive;
+
+import com.example.banking.config.BankingProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Moves transactions older than banking.archive.horizonDays into transactions_archive every
+// banking.archive.intervalMinutes, banking.archive.chunkSize rows per transaction, so the hot
+// table and its indexes stay sized to recent activity
+@Component
+public class TransactionArchiver implements SmartLifecycle {
+    
+    private final ArchiveStore store;
+    private final boolean enabled;
+    private final int horizonDays;
+    private final int chunkSize;
+    private final long intervalMinutes;
+    
+    private final LongAdder archived = new LongAdder();
+    private volatile boolean running;
+    private volatile boolean stopping;
+    private ScheduledExecutorService scheduler;
+    
+    @Autowired
+    public TransactionArchiver(ArchiveStore store, BankingProperties properties) {
+        this.store = store;
+        this.enabled = properties.isArchiveEnabled();
+        this.horizonDays = Math.max(0, properties.getArchiveHorizonDays());
+        this.chunkSize = Math.max(1, properties.getArchiveChunkSize());
+        this.intervalMinutes = Math.max(1L, properties.getArchiveIntervalMinutes());
+    }
+    
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        // A restart after stop() must not see the previous shutdown request
+        stopping = false;
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "transaction-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::archive, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+    
+    // Lets a chunk in progress commit, then stops
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        stopping = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    private void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(horizonDays);
+        try {
+            long count = archiveOlderThan(cutoff);
+            if (count > 0) {
+                System.out.println("Archived " + count + " transactions older than " + cutoff);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Transaction archiving failed: " + e);
+        }
+    }
+    
+    // Archives everything before the cutoff, one chunk per transaction; returns the number of rows moved
+    public long archiveOlderThan(LocalDateTime cutoff) {
+        long total = 0;
+        int count;
+        do {
+            count = store.archiveChunk(cutoff, chunkSize);
+            archived.add(count);
+            total += count;
+        } while (count == chunkSize && !stopping);
+        return total;
+    }
+    
+    public long getArchivedCount() {
+        return archived.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return "TransactionArchiver{" +
+                "enabled=" + enabled +
+                ", horizonDays=" + horizonDays +
+                ", chunkSize=" + chunkSize +
+                ", archived=" + getArchivedCount() +
+                '}';
+    }
+}
+
+// BalanceMismatch.java
+package com.example.banking.reconcile;
+
+import com.example.banking.entity.Money;
+
+// An account whose stored balance differs from its snapshot plus the transactions after it
+public class BalanceMismatch {
+    
+    private final String accountNumber;
+    private final Money storedBalance;
+    private final Money expectedBalance;
+    private final long snapshotTransactionId;
+    
+    public BalanceMismatch(String accountNumber, Money storedBalance, Money expectedBalance,
+                           long snapshotTransactionId) {
+        this.accountNumber = accountNumber;
+        this.storedBalance = storedBalance;
+        this.expectedBalance = expectedBalance;
+        this.snapshotTransactionId = snapshotTransactionId;
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public Money getStoredBalance() {
+        return storedBalance;
+    }
+    
+    public Money getExpectedBalance() {
+        return expectedBalance;
+    }
+    
+    public long getSnapshotTransactionId() {
+        return snapshotTransactionId;
+    }
+    
+    public Money getDifference() {
+        return storedBalance.minus(expectedBalance);
+    }
+    
+    @Override
+    public String toString() {
+        return "BalanceMismatch{" +
+                "accountNumber='" + accountNumber + '\'' +
+                ", storedBalance=" + storedBalance +
+                ", expectedBalance=" + expectedBalance +
+                ", difference=" + getDifference() +
+                ", snapshotTransactionId=" + snapshotTransactionId +
+                '}';
+    }
+}
+
+// ReconciliationReport.java
+package com.example.banking.reconcile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ReconciliationReport {
+    
+    private final long watermark;
+    private final long checked;
+    private final long baselined;
+    private final long snapshotsWritten;
+    private final List<BalanceMismatch> mismatches;
+    
+    public ReconciliationReport(long watermark, long checked, long baselined, long snapshotsWritten,
+                                List<BalanceMismatch> mismatches) {
+        this.watermark = watermark;
+        this.checked = checked;
+        this.baselined = baselined;
+        this.snapshotsWritten = snapshotsWritten;
+        this.mismatches = Collections.unmodifiableList(mismatches);
+    }
+    
+    public ReconciliationReport plus(ReconciliationReport other) {
+        List<BalanceMismatch> combined = new ArrayList<>(mismatches);
+        combined.addAll(other.mismatches);
+        return new ReconciliationReport(watermark, checked + other.checked, baselined + other.baselined,
+                snapshotsWritten + other.snapshotsWritten, combined);
+    }
+    
+    // Transaction id the snapshots of this run were taken at
+    public long getWatermark() {
+        return watermark;
+    }
+    
+    // Accounts compared against their snapshot
+    public long getChecked() {
+        return checked;
+    }
+    
+    // Accounts without a snapshot yet; their stored balance becomes the baseline when snapshots are written
+    public long getBaselined() {
+        return baselined;
+    }
+    
+    public long getSnapshotsWritten() {
+        return snapshotsWritten;
+    }
+    
+    public List<BalanceMismatch> getMismatches() {
+        return mismatches;
+    }
+    
+    public boolean isConsistent() {
+        return mismatches.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return "ReconciliationReport{" +
+                "watermark=" + watermark +
+                ", checked=" + checked +
+                ", baselined=" + baselined +
+                ", snapshotsWritten=" + snapshotsWritten +
+                ", mismatches=" + mismatches.size() +
+                '}';
+    }
+}
+
+// ReconciliationStore.java
+package com.example.banking.reconcile;
+
+import com.example.banking.entity.Account;
+import com.example.banking.entity.BalanceSnapshot;
+import com.example.banking.entity.Money;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.BalanceSnapshotRepository;
+import com.example.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Database side of BalanceReconciler. A partition is processed in one REPEATABLE_READ transaction,
+// so stored balances and the replayed transactions come from the same InnoDB read view. H2 does not
+// share one snapshot across tables at that level and reports false mismatches under live load.
+@Component
+public class ReconciliationStore {
+    
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    
+    @Autowired
+    public ReconciliationStore(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                               BalanceSnapshotRepository snapshotRepository) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.snapshotRepository = snapshotRepository;
+    }
+    
+    // Highest transaction id among rows older than settledBefore. Ids are allocated when a transfer
+    // records its row, so once every transfer that started before settledBefore has finished, no
+    // id at or below the watermark can still commit.
+    // Assumes a single application instance writes transactions. transaction_seq is pooled, and
+    // each instance draws its own block of ids. With two writers, a row committed after the
+    // watermark can carry a lower id than rows already counted. Its replay would be skipped, so
+    // run snapshots (banking.snapshot.*) only with one writer.
+    @Transactional(readOnly = true)
+    public long findWatermark(LocalDateTime settledBefore) {
+        Long watermark = transactionRepository.findMaxIdBefore(settledBefore, true);
+        return watermark == null ? 0L : watermark;
+    }
+    
+    // Inclusive upper account numbers splitting the accounts into roughly equal ranges;
+    // the last range is open-ended
+    @Transactional(readOnly = true)
+    public List<String> findPartitionBounds(int partitions) {
+        long accounts = accountRepository.count();
+        Set<String> bounds = new LinkedHashSet<>();
+        for (int i = 1; i < partitions; i++) {
+            long position = accounts * i / partitions - 1;
+            if (position >= 0) {
+                bounds.add(accountRepository.findAccountNumberAt((int) position));
+            }
+        }
+        return new ArrayList<>(bounds);
+    }
+    
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ReconciliationReport reconcilePartition(String afterAccountNumber, String lastAccountNumber,
+                                                   int pageSize) {
+        return process(afterAccountNumber, lastAccountNumber, pageSize, 0L, null);
+    }
+    
+    // Reconciles, then moves every snapshot in the range forward to the watermark. Snapshots are
+    // derived from the previous snapshot and the log rather than copied from the stored balance,
+    // so a corrupted balance keeps being reported until it is repaired.
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public ReconciliationReport snapshotPartition(String afterAccountNumber, String lastAccountNumber,
+                                                  int pageSize, long watermark, LocalDateTime takenAt) {
+        return process(afterAccountNumber, lastAccountNumber, pageSize, watermark, takenAt);
+    }
+    
+    private ReconciliationReport process(String afterAccountNumber, String lastAccountNumber, int pageSize,
+                                         long watermark, LocalDateTime takenAt) {
+        boolean writeSnapshots = takenAt != null;
+        
+        // Net movement per account after each snapshot position in the range; one grouped scan of
+        // the transactions after that position, not of the accounts' whole history
+        Map<Long, Map<String, Money>> replays = new HashMap<>();
+        for (Long lastTransactionId : snapshotRepository.findLastTransactionIds(afterAccountNumber, lastAccountNumber)) {
+            replays.put(lastTransactionId, replay(lastTransactionId, afterAccountNumber, lastAccountNumber));
+        }
+        Map<String, Money> afterWatermark = writeSnapshots
+                ? replays.computeIfAbsent(watermark, id -> replay(id, afterAccountNumber, lastAccountNumber))
+                : null;
+        
+        long checked = 0;
+        long baselined = 0;
+        long written = 0;
+        List<BalanceMismatch> mismatches = new ArrayList<>();
+        String cursor = afterAccountNumber;
+        List<Account> accounts;
+        do {
+            accounts = accountRepository.findPage(cursor, lastAccountNumber, pageSize);
+            if (accounts.isEmpty()) {
+                break;
+            }
+            List<String> accountNumbers = new ArrayList<>(accounts.size());
+            for (Account account : accounts) {
+                accountNumbers.add(account.getAccountNumber());
+            }
+            Map<String, BalanceSnapshot> snapshots = snapshotRepository.findByAccountNumbers(accountNumbers);
+            
+            for (Account account : accounts) {
+                String accountNumber = account.getAccountNumber();
+                BalanceSnapshot snapshot = snapshots.get(accountNumber);
+                Money current;
+                if (snapshot == null) {
+                    baselined++;
+                    current = account.getBalance();
+                } else {
+                    checked++;
+                    current = snapshot.getBalance().plus(
+                            net(replays.get(snapshot.getLastTransactionId()), accountNumber));
+                    if (!current.equals(account.getBalance())) {
+                        mismatches.add(new BalanceMismatch(accountNumber, account.getBalance(), current,
+                                snapshot.getLastTransactionId()));
+                    }
+                }
+                
+                if (writeSnapshots && (snapshot == null || snapshot.getLastTransactionId() < watermark)) {
+                    Money atWatermark = current.minus(net(afterWatermark, accountNumber));
+                    if (snapshot == null) {
+                        snapshotRepository.save(new BalanceSnapshot(accountNumber, atWatermark, watermark, takenAt));
+                    } else {
+                        snapshot.moveTo(atWatermark, watermark, takenAt);
+                    }
+                    written++;
+                }
+            }
+            snapshotRepository.flushAndClear();
+            cursor = accounts.get(accounts.size() - 1).getAccountNumber();
+        } while (accounts.size() == pageSize);
+        
+        return new ReconciliationReport(watermark, checked, baselined, written, mismatches);
+    }
+    
+    // Incoming minus outgoing successful transfers with id > afterTransactionId, per account in range
+    private Map<String, Money> replay(long afterTransactionId, String afterAccountNumber, String lastAccountNumber) {
+        Map<String, Money> net = new HashMap<>();
+        for (Map.Entry<String, BigDecimal> incoming : transactionRepository.sumByAccountAfter(
+                false, afterTransactionId, afterAccountNumber, lastAccountNumber, true).entrySet()) {
+            net.merge(incoming.getKey(), Money.of(incoming.getValue()), Money::plus);
+        }
+        for (Map.Entry<String, BigDecimal> outgoing : transactionRepository.sumByAccountAfter(
+                true, afterTransactionId, afterAccountNumber, lastAccountNumber, true).entrySet()) {
+            net.merge(outgoing.getKey(), Money.ZERO.minus(Money.of(outgoing.getValue())), Money::plus);
+        }
+        return net;
+    }
+    
+    private static Money net(Map<String, Money> replay, String accountNumber) {
+        return replay.getOrDefault(accountNumber, Money.ZERO);
+    }
+}
+
+// BalanceReconciler.java
+package com.example.banking.reconcile;
+
+import com.example.banking.config.BankingProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Checks Account.balance against the transaction log without scanning all of it: each account's
+// balance is kept as a snapshot at a transaction id, and only the transactions after it are replayed.
+// Accounts are split into banking.reconcile.partitions account-number ranges, processed
+// banking.reconcile.parallelism at a time. With banking.snapshot.enabled the snapshots are moved
+// forward every banking.snapshot.intervalMinutes, which also reports mismatches.
+@Component
+public class BalanceReconciler implements SmartLifecycle {
+    
+    private final ReconciliationStore store;
+    private final boolean snapshotsEnabled;
+    private final long intervalMinutes;
+    private final long settleSeconds;
+    private final int partitions;
+    private final int parallelism;
+    private final int pageSize;
+    
+    private volatile ReconciliationReport lastReport;
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+    
+    @Autowired
+    public BalanceReconciler(ReconciliationStore store, BankingProperties properties) {
+        this.store = store;
+        this.snapshotsEnabled = properties.isSnapshotEnabled();
+        this.intervalMinutes = Math.max(1L, properties.getSnapshotIntervalMinutes());
+        this.settleSeconds = Math.max(0L, properties.getSnapshotSettleSeconds());
+        this.partitions = Math.max(1, properties.getReconcilePartitions());
+        this.parallelism = Math.max(1, properties.getReconcileParallelism());
+        this.pageSize = Math.max(1, properties.getReconcilePageSize());
+    }
+    
+    @Override
+    public synchronized void start() {
+        if (!snapshotsEnabled || running) {
+            return;
+        }
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "balance-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+    
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    private void scheduledSnapshot() {
+        try {
+            ReconciliationReport report = takeSnapshots();
+            System.out.println("Balance snapshots taken: " + report);
+            for (BalanceMismatch mismatch : report.getMismatches()) {
+                System.err.println(mismatch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            System.err.println("Balance snapshot failed: " + e);
+        }
+    }
+    
+    // Compares every account with its snapshot plus the transactions after it; writes nothing
+    public ReconciliationReport reconcile() throws InterruptedException {
+        return run(null);
+    }
+    
+    // Reconciles and moves every snapshot forward to the current watermark
+    public ReconciliationReport takeSnapshots() throws InterruptedException {
+        return run(LocalDateTime.now());
+    }
+    
+    private ReconciliationReport run(LocalDateTime takenAt) throws InterruptedException {
+        long watermark = takenAt == null ? 0L : store.findWatermark(takenAt.minusSeconds(settleSeconds));
+        List<String> bounds = store.findPartitionBounds(partitions);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, bounds.size() + 1), task -> {
+            Thread thread = new Thread(task, "balance-reconciler-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<ReconciliationReport>> results = new ArrayList<>(bounds.size() + 1);
+            for (int i = 0; i <= bounds.size(); i++) {
+                String after = i == 0 ? null : bounds.get(i - 1);
+                String last = i < bounds.size() ? bounds.get(i) : null;
+                results.add(executor.submit(() -> takenAt == null
+                        ? store.reconcilePartition(after, last, pageSize)
+                        : store.snapshotPartition(after, last, pageSize, watermark, takenAt)));
+            }
+            ReconciliationReport report = new ReconciliationReport(watermark, 0, 0, 0, new ArrayList<>());
+            for (Future<ReconciliationReport> result : results) {
+                report = report.plus(result.get());
+            }
+            lastReport = report;
+            return report;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Reconciliation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+    
+    public int getLastMismatchCount() {
+        ReconciliationReport report = lastReport;
+        return report == null ? 0 : report.getMismatches().size();
+    }
+}
+
+// AuditOverflowPolicy.java
+package com.example.banking.audit;
+
+// What AuditJournal.record does when the queue is full
+public enum AuditOverflowPolicy {
+    // Drop the record immediately; callers never wait on auditing
+    DROP,
+    // Wait up to banking.audit.blockTimeoutMs for space, then drop
+    BLOCK
+}
+
+// AuditStore.java
+package com.example.banking.audit;
+
+import com.example.banking.entity.TransactionStatus;
+import com.example.banking.entity.TransferAudit;
+import com.example.banking.repository.TransferAuditRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Component
+public class AuditStore {
+    
+    private final TransferAuditRepository auditRepository;
+    
+    @Autowired
+    public AuditStore(TransferAuditRepository auditRepository) {
+        this.auditRepository = auditRepository;
+    }
+    
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void persist(List<TransferAudit> records) {
+        auditRepository.saveAll(records);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<TransferAudit> findRecent(int limit) {
+        return auditRepository.findRecent(limit);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<TransferAudit> findByStatusSince(TransactionStatus status, LocalDateTime since, int limit) {
+        return auditRepository.findByStatusSince(status, since, limit);
+    }
+}
+
+// AuditJournal.java
+package com.example.banking.audit;
+
+import com.example.banking.config.BankingProperties;
+import com.example.banking.entity.TransferAudit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded in-memory queue of transfer audit records, drained in batches by one background
+// thread. Each batch is written in its own transaction, so audit rows survive business
+// rollbacks and never add a round trip to the caller. A batch that keeps failing is retried one
+// record at a time, so a single bad record does not take the rest of the batch with it.
+@Component
+public class AuditJournal implements SmartLifecycle, Runnable {
+    
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    
+    private final AuditStore store;
+    private final boolean enabled;
+    private final BlockingQueue<TransferAudit> queue;
+    private final int batchSize;
+    private final long maxDelayMs;
+    private final AuditOverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder writeDropped = new LongAdder();
+    private volatile boolean running;
+    private Thread thread;
+    
+    @Autowired
+    public AuditJournal(AuditStore store, BankingProperties properties) {
+        this.store = store;
+        this.enabled = properties.isAuditEnabled();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getAuditQueueSize()));
+        this.batchSize = Math.max(1, properties.getAuditBatchSize());
+        this.maxDelayMs = Math.max(1L, properties.getAuditMaxDelayMs());
+        this.overflowPolicy = properties.getAuditOverflowPolicy();
+        this.blockTimeoutMs = properties.getAuditBlockTimeoutMs();
+    }
+    
+    // Returns false if the record was dropped because the queue stayed full, or rejected because
+    // the journal is not running and nothing would ever write it
+    public boolean record(TransferAudit record) {
+        if (!enabled) {
+            return false;
+        }
+        if (!running) {
+            rejected.increment();
+            return false;
+        }
+        boolean accepted = queue.offer(record);
+        if (!accepted && overflowPolicy == AuditOverflowPolicy.BLOCK) {
+            blocked.increment();
+            try {
+                accepted = queue.offer(record, blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (accepted) {
+            recorded.increment();
+        } else {
+            dropped.increment();
+        }
+        return accepted;
+    }
+    
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "audit-journal");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    // Drains what is queued before returning, including records that raced with the shutdown
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join();
+            List<TransferAudit> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    // Stop after AsyncBankingService (default phase), whose stop still runs queued transfers
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1;
+    }
+    
+    @Override
+    public void run() {
+        List<TransferAudit> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                TransferAudit first = queue.poll(maxDelayMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private void write(List<TransferAudit> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                store.persist(batch);
+                written.add(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                writeFailures.increment();
+                if (attempt >= MAX_WRITE_ATTEMPTS) {
+                    System.err.println("Audit batch of " + batch.size() + " failed " + attempt
+                            + " times, writing its records one by one: " + e);
+                    writeSingly(batch);
+                    return;
+                }
+                Thread.sleep(10L << attempt);
+            }
+        }
+    }
+    
+    // One transaction per record; only the records that still fail are dropped
+    private void writeSingly(List<TransferAudit> batch) {
+        int failed = 0;
+        RuntimeException lastError = null;
+        for (TransferAudit record : batch) {
+            try {
+                store.persist(Collections.singletonList(record));
+                written.increment();
+            } catch (RuntimeException e) {
+                writeFailures.increment();
+                failed++;
+                lastError = e;
+            }
+        }
+        if (failed > 0) {
+            writeDropped.add(failed);
+            System.err.println("Dropping " + failed + " of " + batch.size()
+                    + " audit records that could not be written: " + lastError);
+        }
+    }
+    
+    // Blocks until every record accepted so far has been written or dropped; false on timeout
+    public boolean awaitWritten(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        long target = recorded.sum();
+        while (running && written.sum() + writeDropped.sum() < target) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+    
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    public int getQueueCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+    
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+    
+    // Records dropped because the queue was full
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+    
+    // Records refused because the journal was not running
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    // Number of record calls that found the queue full and had to wait (BLOCK policy)
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+    
+    public long getWrittenCount() {
+        return written.sum();
+    }
+    
+    // Failed write attempts, whole batch or single record
+    public long getWriteFailureCount() {
+        return writeFailures.sum();
+    }
+    
+    // Accepted records that were never written because every attempt to write them failed
+    public long getWriteDroppedCount() {
+        return writeDropped.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return "AuditJournal{" +
+                "queued=" + getQueueDepth() + "/" + getQueueCapacity() +
+                ", recorded=" + getRecordedCount() +
+                ", written=" + getWrittenCount() +
+                ", dropped=" + getDroppedCount() +
+                ", rejected=" + getRejectedCount() +
+                ", blocked=" + getBlockedCount() +
+                ", writeFailures=" + getWriteFailureCount() +
+                ", writeDropped=" + getWriteDroppedCount() +
+                ", policy=" + overflowPolicy +
+                '}';
+    }
+}
+
+// MpscRingBuffer.java
+package com.example.banking.ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free multi-producer / single-consumer ring buffer. Each slot carries a sequence
+// number that tells producers when it is free and the consumer when it has been published.
+public class MpscRingBuffer<E> {
+    
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    
+    public MpscRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1) << 1);
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    // Safe to call from any thread; returns false if the buffer is full
+    public boolean offer(E element) {
+        long position;
+        while (true) {
+            position = tail.get();
+            long sequence = sequences.get((int) position & mask);
+            long difference = sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+        int index = (int) position & mask;
+        slots.lazySet(index, element);
+        sequences.set(index, position + 1);
+        return true;
+    }
+    
+    // Consumer thread only
+    public E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+    
+    public int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    public int capacity() {
+        return mask + 1;
+    }
+}
+
+// LedgerStatus.java
+package com.example.banking.ledger;
+
+public enum LedgerStatus {
+    COMMITTED,
+    INVALID_AMOUNT,
+    SAME_ACCOUNT,
+    ACCOUNT_NOT_FOUND,
+    INSUFFICIENT_FUNDS,
+    // The engine is stopped or its queue stayed full for the whole submit timeout
+    REJECTED
+}
+
+// LedgerResult.java
+package com.example.banking.ledger;
+
+public class LedgerResult {
+    
+    private final LedgerStatus status;
+    private final String accountNumber;
+    private final long sequence;
+    
+    LedgerResult(LedgerStatus status, String accountNumber, long sequence) {
+        this.status = status;
+        this.accountNumber = accountNumber;
+        this.sequence = sequence;
+    }
+    
+    public LedgerStatus getStatus() {
+        return status;
+    }
+    
+    // The account the failure refers to (missing or short of funds), if any
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    // Journal sequence within the source account's partition; 0 unless committed
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public boolean isCommitted() {
+        return status == LedgerStatus.COMMITTED;
+    }
+    
+    @Override
+    public String toString() {
+        return "LedgerResult{" +
+                "status=" + status +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", sequence=" + sequence +
+                '}';
+    }
+}
+
+// LedgerEntry.java
+package com.example.banking.ledger;
+
+// A committed transfer as written to the journal and handed to write-behind persistence
+public class LedgerEntry {
+    
+    private final int partition;
+    private final long sequence;
+    private final long timestampMillis;
+    private final String fromAccount;
+    private final String toAccount;
+    private final long amountMinor;
+    
+    public LedgerEntry(int partition, long sequence, long timestampMillis, String fromAccount, String toAccount,
+                       long amountMinor) {
+        this.partition = partition;
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.fromAccount = fromAccount;
+        this.toAccount = toAccount;
+        this.amountMinor = amountMinor;
+    }
+    
+    public int getPartition() {
+        return partition;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+    
+    public String getFromAccount() {
+        return fromAccount;
+    }
+    
+    public String getToAccount() {
+        return toAccount;
+    }
+    
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+    
+    @Override
+    public String toString() {
+        return "LedgerEntry{" +
+                "partition=" + partition +
+                ", sequence=" + sequence +
+                ", fromAccount='" + fromAccount + '\'' +
+                ", toAccount='" + toAccount + '\'' +
+                ", amountMinor=" + amountMinor +
+                '}';
+    }
+}
+
+// LedgerAccount.java
+package com.example.banking.ledger;
+
+import com.example.banking.entity.Account;
+import com.example.banking.entity.Money;
+
+// In-memory account; the balance is only written by the partition thread that owns it
+class LedgerAccount {
+    
+    private final Long id;
+    private final String accountNumber;
+    private final String ownerName;
+    private final int partition;
+    private volatile long balanceMinor;
+    
+    LedgerAccount(Account account, int partition) {
+        this.id = account.getId();
+        this.accountNumber = account.getAccountNumber();
+        this.ownerName = account.getOwnerName();
+        this.partition = partition;
+        this.balanceMinor = account.getBalance().getMinorUnits();
+    }
+    
+    Long getId() {
+        return id;
+    }
+    
+    String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    int getPartition() {
+        return partition;
+    }
+    
+    long getBalanceMinor() {
+        return balanceMinor;
+    }
+    
+    void add(long amountMinor) {
+        balanceMinor = Math.addExact(balanceMinor, amountMinor);
+    }
+    
+    // Detached snapshot for callers of BankingService
+    Account toAccount() {
+        Account account = new Account(accountNumber, ownerName, Money.ofMinor(balanceMinor));
+        account.setId(id);
+        return account;
+    }
+}
+
+// LedgerJournal.java
+package com.example.banking.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+// Append-only, segmented journal for one partition. Only the partition thread touches it.
+// Record layout: int payloadLength, payload (seq, timestamp, amount, from, to), int crc32(payload).
+// Segments whose entries have all been persisted to the database are deleted.
+class LedgerJournal implements Closeable {
+    
+    private static final int MAX_RECORD_BYTES = 4096;
+    
+    private final Path directory;
+    private final int partition;
+    private final boolean fsync;
+    private final long segmentBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final Deque<Segment> closedSegments = new ArrayDeque<>();
+    private Segment current;
+    
+    LedgerJournal(Path directory, int partition, boolean fsync, long segmentBytes) {
+        this.directory = directory;
+        this.partition = partition;
+        this.fsync = fsync;
+        this.segmentBytes = segmentBytes;
+    }
+    
+    void append(LedgerEntry entry) {
+        byte[] from = entry.getFromAccount().getBytes(StandardCharsets.UTF_8);
+        byte[] to = entry.getToAccount().getBytes(StandardCharsets.UTF_8);
+        payload.clear();
+        payload.putLong(entry.getSequence());
+        payload.putLong(entry.getTimestampMillis());
+        payload.putLong(entry.getAmountMinor());
+        payload.putShort((short) from.length).put(from);
+        payload.putShort((short) to.length).put(to);
+        payload.flip();
+        crc.reset();
+        crc.update(payload.duplicate());
+        
+        if (buffer.remaining() < payload.remaining() + 8) {
+            writeBuffer();
+        }
+        if (current == null) {
+            current = openSegment(entry.getSequence());
+        }
+        buffer.putInt(payload.remaining());
+        buffer.put(payload);
+        buffer.putInt((int) crc.getValue());
+        current.lastSequence = entry.getSequence();
+    }
+    
+    // Group commit: one write (and optional fsync) for everything appended since the last flush
+    void flush() {
+        writeBuffer();
+        if (current == null) {
+            return;
+        }
+        try {
+            if (fsync) {
+                current.channel.force(false);
+            }
+            if (current.channel.size() >= segmentBytes) {
+                current.channel.close();
+                closedSegments.addLast(current);
+                current = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal flush failed for partition " + partition, e);
+        }
+    }
+    
+    // Drops closed segments whose last entry is already in the database
+    void deletePersisted(long persistedSequence) {
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst().lastSequence <= persistedSequence) {
+            Segment segment = closedSegments.removeFirst();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete journal segment " + segment.path, e);
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        writeBuffer();
+        if (current != null) {
+            current.channel.force(false);
+            current.channel.close();
+        }
+    }
+    
+    private void writeBuffer() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                current.channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal write failed for partition " + partition, e);
+        } finally {
+            buffer.clear();
+        }
+    }
+    
+    private Segment openSegment(long firstSequence) {
+        Path path = directory.resolve(String.format("ledger-%d-%020d.journal", partition, firstSequence));
+        try {
+            Files.createDirectories(directory);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            return new Segment(path, channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal segment " + path, e);
+        }
+    }
+    
+    // Reads every intact entry of a partition in sequence order; a torn tail record ends the segment
+    static List<LedgerEntry> readAll(Path directory, int partition) throws IOException {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (Path segment : segments(directory, partition)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+            CRC32 checksum = new CRC32();
+            while (data.remaining() >= 4) {
+                int length = data.getInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES || data.remaining() < length + 4) {
+                    break;
+                }
+                ByteBuffer record = data.slice();
+                record.limit(length);
+                data.position(data.position() + length);
+                checksum.reset();
+                checksum.update(record.duplicate());
+                if ((int) checksum.getValue() != data.getInt()) {
+                    break;
+                }
+                long sequence = record.getLong();
+                long timestamp = record.getLong();
+                long amount = record.getLong();
+                String from = readString(record);
+                String to = readString(record);
+                entries.add(new LedgerEntry(partition, sequence, timestamp, from, to, amount));
+            }
+        }
+        return entries;
+    }
+    
+    static void deleteAll(Path directory, int partition) throws IOException {
+        for (Path segment : segments(directory, partition)) {
+            Files.deleteIfExists(segment);
+        }
+    }
+    
+    // Partition indexes that still have segments on disk, whatever the configured partition count
+    static SortedSet<Integer> partitions(Path directory) throws IOException {
+        SortedSet<Integer> partitions = new TreeSet<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "ledger-*-*.journal")) {
+                for (Path path : stream) {
+                    String name = path.getFileName().toString();
+                    int start = "ledger-".length();
+                    try {
+                        partitions.add(Integer.parseInt(name.substring(start, name.indexOf('-', start))));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Unexpected journal segment name " + path, e);
+                    }
+                }
+            }
+        }
+        return partitions;
+    }
+    
+    private static List<Path> segments(Path directory, int partition) throws IOException {
+        TreeMap<String, Path> sorted = new TreeMap<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "ledger-" + partition + "-*.journal")) {
+                for (Path path : stream) {
+                    sorted.put(path.getFileName().toString(), path);
+                }
+            }
+        }
+        return new ArrayList<>(sorted.values());
+    }
+    
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private long lastSequence;
+        
+        Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+}
+
+// LedgerPartition.java
+package com.example.banking.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Single writer for the accounts hashed to it. Debits are applied here, journalled with one
+// group commit per drained batch, then the matching credits are routed to the owner of the
+// destination account and the entries are handed to write-behind persistence.
+class LedgerPartition implements Runnable {
+    
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final int index;
+    private final LedgerEngine engine;
+    private final Map<String, LedgerAccount> accounts;
+    private final LedgerJournal journal;
+    private final LedgerWriteBehind writeBehind;
+    private final MpscRingBuffer<TransferCommand> commands;
+    private final Queue<LedgerEntry> credits = new ConcurrentLinkedQueue<>();
+    private final List<TransferCommand> pending = new ArrayList<>(MAX_BATCH);
+    private volatile boolean running = true;
+    private volatile Thread thread;
+    private volatile long sequence;
+    
+    LedgerPartition(int index, LedgerEngine engine, Map<String, LedgerAccount> accounts, LedgerJournal journal,
+                    LedgerWriteBehind writeBehind, int ringBufferSize, long initialSequence) {
+        this.index = index;
+        this.engine = engine;
+        this.accounts = accounts;
+        this.journal = journal;
+        this.writeBehind = writeBehind;
+        this.commands = new MpscRingBuffer<>(ringBufferSize);
+        this.sequence = initialSequence;
+    }
+    
+    void start() {
+        Thread worker = new Thread(this, "ledger-partition-" + index);
+        worker.setDaemon(true);
+        thread = worker;
+        worker.start();
+    }
+    
+    boolean submit(TransferCommand command) {
+        if (!running || !commands.offer(command)) {
+            return false;
+        }
+        LockSupport.unpark(thread);
+        return true;
+    }
+    
+    void credit(LedgerEntry entry) {
+        credits.offer(entry);
+        LockSupport.unpark(thread);
+    }
+    
+    int getQueueDepth() {
+        return commands.size();
+    }
+    
+    long getLastSequence() {
+        return sequence;
+    }
+    
+    // Stops accepting commands; the thread exits once its queues are drained
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+    
+    void awaitTermination() throws InterruptedException {
+        Thread worker = thread;
+        if (worker != null) {
+            worker.join();
+        }
+    }
+    
+    @Override
+    public void run() {
+        try {
+            while (running || !commands.isEmpty() || !credits.isEmpty()) {
+                int applied = applyCredits();
+                TransferCommand command;
+                while (pending.size() < MAX_BATCH && (command = commands.poll()) != null) {
+                    apply(command);
+                    applied++;
+                }
+                if (!pending.isEmpty()) {
+                    commit();
+                }
+                if (applied == 0) {
+                    journal.deletePersisted(writeBehind.getPersistedSequence(index));
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+            failPending(null);
+        } catch (RuntimeException e) {
+            System.err.println("Ledger partition " + index + " stopped: " + e);
+            running = false;
+            failPending(e);
+        }
+    }
+    
+    private int applyCredits() {
+        int applied = 0;
+        LedgerEntry entry;
+        while ((entry = credits.poll()) != null) {
+            accounts.get(entry.getToAccount()).add(entry.getAmountMinor());
+            applied++;
+        }
+        return applied;
+    }
+    
+    private void apply(TransferCommand command) {
+        LedgerAccount from = accounts.get(command.fromAccount);
+        LedgerAccount to = accounts.get(command.toAccount);
+        if (from == null) {
+            command.future.complete(new LedgerResult(LedgerStatus.ACCOUNT_NOT_FOUND, command.fromAccount, 0L));
+        } else if (to == null) {
+            command.future.complete(new LedgerResult(LedgerStatus.ACCOUNT_NOT_FOUND, command.toAccount, 0L));
+        } else if (from.getBalanceMinor() < command.amountMinor) {
+            command.future.complete(new LedgerResult(LedgerStatus.INSUFFICIENT_FUNDS, command.fromAccount, 0L));
+        } else {
+            from.add(-command.amountMinor);
+            command.entry = new LedgerEntry(index, ++sequence, System.currentTimeMillis(),
+                    command.fromAccount, command.toAccount, command.amountMinor);
+            journal.append(command.entry);
+            pending.add(command);
+        }
+    }
+    
+    // On failure the commands not yet acknowledged stay in pending for failPending
+    private void commit() {
+        journal.flush();
+        try {
+            for (TransferCommand command : pending) {
+                LedgerEntry entry = command.entry;
+                engine.partitionFor(entry.getToAccount()).credit(entry);
+                writeBehind.enqueue(entry);
+                command.future.complete(new LedgerResult(LedgerStatus.COMMITTED, null, entry.getSequence()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing entries to write-behind", e);
+        }
+        pending.clear();
+    }
+    
+    // Fails the unacknowledged part of the batch in flight (if any) and rejects whatever is still queued
+    private void failPending(Throwable error) {
+        for (TransferCommand command : pending) {
+            command.future.completeExceptionally(error);
+        }
+        pending.clear();
+        TransferCommand command;
+        while ((command = commands.poll()) != null) {
+            command.future.complete(new LedgerResult(LedgerStatus.REJECTED, null, 0L));
+        }
+    }
+    
+    static class TransferCommand {
+        private final String fromAccount;
+        private final String toAccount;
+        private final long amountMinor;
+        private final CompletableFuture<LedgerResult> future = new CompletableFuture<>();
+        private LedgerEntry entry;
+        
+        TransferCommand(String fromAccount, String toAccount, long amountMinor) {
+            this.fromAccount = fromAccount;
+            this.toAccount = toAccount;
+            this.amountMinor = amountMinor;
+        }
+        
+        CompletableFuture<LedgerResult> getFuture() {
+            return future;
+        }
+    }
+}
+
+// LedgerWriteBehind.java
+package com.example.banking.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drains committed entries into the database in batches. The queue is bounded, so a slow
+// database pushes back on the partition threads instead of growing the heap. If the thread dies,
+// enqueue fails from then on and the engine rejects new transfers; the journal keeps the rest.
+class LedgerWriteBehind implements Runnable {
+    
+    private static final int MAX_BACKOFF_MS = 5000;
+    
+    private final LedgerStore store;
+    private final BlockingQueue<LedgerEntry> queue;
+    private final int batchSize;
+    private final long maxDelayMs;
+    private final AtomicLongArray persistedSequences;
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+    private Thread thread;
+    
+    LedgerWriteBehind(LedgerStore store, int partitions, int queueSize, int batchSize, long maxDelayMs,
+                      long[] initialSequences) {
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.persistedSequences = new AtomicLongArray(initialSequences);
+    }
+    
+    void start() {
+        thread = new Thread(this, "ledger-write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    void enqueue(LedgerEntry entry) throws InterruptedException {
+        checkAlive();
+        while (!queue.offer(entry, maxDelayMs, TimeUnit.MILLISECONDS)) {
+            checkAlive();
+        }
+    }
+    
+    boolean isFailed() {
+        return failure != null;
+    }
+    
+    private void checkAlive() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("Ledger write-behind has stopped", cause);
+        }
+    }
+    
+    long getPersistedSequence(int partition) {
+        return persistedSequences.get(partition);
+    }
+    
+    int getQueueDepth() {
+        return queue.size();
+    }
+    
+    long getPersistedCount() {
+        return persisted.sum();
+    }
+    
+    long getFailureCount() {
+        return failures.sum();
+    }
+    
+    // Waits for the queue to drain; entries that cannot be written stay in the journal for recovery
+    void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join();
+        }
+    }
+    
+    @Override
+    public void run() {
+        List<LedgerEntry> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                LedgerEntry first = queue.poll(maxDelayMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (!persist(batch)) {
+                    return;
+                }
+                for (LedgerEntry entry : batch) {
+                    persistedSequences.accumulateAndGet(entry.getPartition(), entry.getSequence(), Math::max);
+                }
+                persisted.add(batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            failure = e;
+            Thread.currentThread().interrupt();
+            System.err.println("Ledger write-behind interrupted; unpersisted entries stay in the journal");
+        } catch (Throwable e) {
+            failure = e;
+            System.err.println("Ledger write-behind stopped; unpersisted entries stay in the journal: " + e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+    
+    private boolean persist(List<LedgerEntry> batch) throws InterruptedException {
+        long backoffMs = 10;
+        while (true) {
+            try {
+                store.persist(batch);
+                return true;
+            } catch (RuntimeException e) {
+                failures.increment();
+                if (!running) {
+                    System.err.println("Ledger write-behind giving up on " + batch.size()
+                            + " entries during shutdown; they will be replayed from the journal: " + e);
+                    return false;
+                }
+                System.err.println("Ledger write-behind failed, retrying in " + backoffMs + "ms: " + e);
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+            }
+        }
+    }
+}
+
+// LedgerStore.java
+package com.example.banking.ledger;
+
+import com.example.banking.entity.Account;
+import com.example.banking.entity.LedgerCheckpoint;
+import com.example.banking.entity.Money;
+import com.example.banking.entity.Transaction;
+import com.example.banking.entity.TransactionStatus;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.LedgerCheckpointRepository;
+import com.example.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Database side of the ledger engine
+@Component
+public class LedgerStore {
+    
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    
+    @Autowired
+    public LedgerStore(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                       LedgerCheckpointRepository checkpointRepository) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<Account> loadAccounts() {
+        return accountRepository.findAll();
+    }
+    
+    @Transactional(readOnly = true)
+    public Map<Integer, Long> loadCheckpoints() {
+        Map<Integer, Long> checkpoints = new HashMap<>();
+        for (LedgerCheckpoint checkpoint : checkpointRepository.findAll()) {
+            checkpoints.put(checkpoint.getPartition(), checkpoint.getLastSequence());
+        }
+        return checkpoints;
+    }
+    
+    // Inserts the transaction rows, applies the net balance change per account and advances the
+    // per-partition checkpoints, all in one database transaction
+    @Transactional
+    public void persist(List<LedgerEntry> entries) {
+        List<Transaction> records = new ArrayList<>(entries.size());
+        Map<String, Long> deltas = new TreeMap<>();
+        Map<Integer, Long> checkpoints = new HashMap<>();
+        for (LedgerEntry entry : entries) {
+            Transaction record = new Transaction(entry.getFromAccount(), entry.getToAccount(),
+                    BigDecimal.valueOf(entry.getAmountMinor(), 2));
+            record.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getTimestampMillis()),
+                    ZoneId.systemDefault()));
+            record.setStatus(TransactionStatus.SUCCESS);
+            records.add(record);
+            deltas.merge(entry.getFromAccount(), -entry.getAmountMinor(), Long::sum);
+            deltas.merge(entry.getToAccount(), entry.getAmountMinor(), Long::sum);
+            checkpoints.merge(entry.getPartition(), entry.getSequence(), Math::max);
+        }
+        transactionRepository.saveAll(records);
+        for (LedgerCheckpoint checkpoint : checkpointRepository.findAll()) {
+            Long sequence = checkpoints.remove(checkpoint.getPartition());
+            if (sequence != null && sequence > checkpoint.getLastSequence()) {
+                checkpoint.setLastSequence(sequence);
+            }
+        }
+        for (Map.Entry<Integer, Long> checkpoint : checkpoints.entrySet()) {
+            checkpointRepository.save(new LedgerCheckpoint(checkpoint.getKey(), checkpoint.getValue()));
+        }
+        // TreeMap keeps the row updates in account number order. A missing row rolls the whole batch
+        // back, so the entries stay in the journal instead of advancing the checkpoint past them.
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() != 0L) {
+                int updated = accountRepository.applyBalanceDelta(delta.getKey(), Money.ofMinor(delta.getValue()));
+                if (updated != 1) {
+                    throw new IllegalStateException("Balance update for account " + delta.getKey()
+                            + " touched " + updated + " rows");
+                }
+            }
+        }
+    }
+}
+
+// LedgerEngine.java
+package com.example.banking.ledger;
+
+import com.example.banking.config.BankingProperties;
+import com.example.banking.entity.Account;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Optional in-memory ledger (banking.ledger.enabled). Balances live in memory, partitioned by
+// account number hash across single-writer threads; committed transfers are journalled locally
+// and persisted to the database asynchronously. On start the journal is replayed into the
+// database before balances are loaded, so a crash loses nothing that was acknowledged.
+@Component
+public class LedgerEngine implements SmartLifecycle {
+    
+    private final LedgerStore store;
+    private final boolean enabled;
+    private final int partitionCount;
+    private final int ringBufferSize;
+    private final long submitTimeoutNanos;
+    private final Path journalDirectory;
+    private final boolean journalFsync;
+    private final long journalSegmentBytes;
+    private final int writeBehindBatchSize;
+    private final int writeBehindQueueSize;
+    private final long writeBehindMaxDelayMs;
+    
+    private final Map<String, LedgerAccount> accountsByNumber = new ConcurrentHashMap<>();
+    private final Map<Long, LedgerAccount> accountsById = new ConcurrentHashMap<>();
+    private final List<LedgerJournal> journals = new ArrayList<>();
+    private LedgerPartition[] partitions;
+    private LedgerWriteBehind writeBehind;
+    private volatile boolean running;
+    
+    @Autowired
+    public LedgerEngine(LedgerStore store, BankingProperties properties) {
+        this.store = store;
+        this.enabled = properties.isLedgerEnabled();
+        this.partitionCount = Math.max(1, properties.getLedgerPartitions());
+        this.ringBufferSize = properties.getLedgerRingBufferSize();
+        this.submitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLedgerSubmitTimeoutMs());
+        this.journalDirectory = Paths.get(properties.getLedgerJournalDir());
+        this.journalFsync = properties.isLedgerJournalFsync();
+        this.journalSegmentBytes = properties.getLedgerJournalSegmentBytes();
+        this.writeBehindBatchSize = Math.max(1, properties.getLedgerWriteBehindBatchSize());
+        this.writeBehindQueueSize = Math.max(1, properties.getLedgerWriteBehindQueueSize());
+        this.writeBehindMaxDelayMs = Math.max(1L, properties.getLedgerWriteBehindMaxDelayMs());
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    // Stop after AsyncBankingService (default phase), whose stop still runs queued transfers
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1;
+    }
+    
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        long[] sequences = recover();
+        for (Account account : store.loadAccounts()) {
+            register(account);
+        }
+        writeBehind = new LedgerWriteBehind(store, partitionCount, writeBehindQueueSize, writeBehindBatchSize,
+                writeBehindMaxDelayMs, sequences);
+        partitions = new LedgerPartition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            LedgerJournal journal = new LedgerJournal(journalDirectory, i, journalFsync, journalSegmentBytes);
+            journals.add(journal);
+            partitions[i] = new LedgerPartition(i, this, accountsByNumber, journal, writeBehind,
+                    ringBufferSize, sequences[i]);
+        }
+        writeBehind.start();
+        for (LedgerPartition partition : partitions) {
+            partition.start();
+        }
+        running = true;
+        System.out.println("Ledger engine started with " + partitionCount + " partitions and "
+                + accountsByNumber.size() + " accounts");
+    }
+    
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            // Partitions route credits to each other, so none may exit before all have stopped accepting
+            for (LedgerPartition partition : partitions) {
+                partition.shutdown();
+            }
+            for (LedgerPartition partition : partitions) {
+                partition.awaitTermination();
+            }
+            writeBehind.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (int i = 0; i < partitionCount; i++) {
+            try {
+                journals.get(i).close();
+                // Everything is in the database after a clean shutdown
+                if (writeBehind.getPersistedSequence(i) >= partitions[i].getLastSequence()) {
+                    LedgerJournal.deleteAll(journalDirectory, i);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not close ledger journal " + i + ": " + e);
+            }
+        }
+        journals.clear();
+        accountsByNumber.clear();
+        accountsById.clear();
+    }
+    
+    public CompletableFuture<LedgerResult> transfer(String fromAccountNumber, String toAccountNumber,
+                                                    BigDecimal amount) {
+        long amountMinor = -1L;
+        if (amount != null) {
+            try {
+                amountMinor = toMinor(amount);
+            } catch (ArithmeticException e) {
+                // More than two decimals or out of long range
+            }
+        }
+        if (amountMinor <= 0L) {
+            return CompletableFuture.completedFuture(new LedgerResult(LedgerStatus.INVALID_AMOUNT, null, 0L));
+        }
+        if (fromAccountNumber == null || toAccountNumber == null) {
+            return CompletableFuture.completedFuture(new LedgerResult(LedgerStatus.ACCOUNT_NOT_FOUND, null, 0L));
+        }
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            return CompletableFuture.completedFuture(
+                    new LedgerResult(LedgerStatus.SAME_ACCOUNT, fromAccountNumber, 0L));
+        }
+        if (!running || writeBehind.isFailed()) {
+            return CompletableFuture.completedFuture(new LedgerResult(LedgerStatus.REJECTED, null, 0L));
+        }
+        LedgerPartition.TransferCommand command =
+                new LedgerPartition.TransferCommand(fromAccountNumber, toAccountNumber, amountMinor);
+        LedgerPartition partition = partitionFor(fromAccountNumber);
+        long deadline = System.nanoTime() + submitTimeoutNanos;
+        while (!partition.submit(command)) {
+            if (!running || System.nanoTime() - deadline > 0) {
+                return CompletableFuture.completedFuture(new LedgerResult(LedgerStatus.REJECTED, null, 0L));
+            }
+            LockSupport.parkNanos(10_000L);
+        }
+        return command.getFuture();
+    }
+    
+    // Called after a new account has been committed to the database
+    public void register(Account account) {
+        LedgerAccount ledgerAccount = new LedgerAccount(account, partitionIndex(account.getAccountNumber()));
+        accountsByNumber.put(ledgerAccount.getAccountNumber(), ledgerAccount);
+        accountsById.put(ledgerAccount.getId(), ledgerAccount);
+    }
+    
+    public Optional<Account> findAccount(String accountNumber) {
+        LedgerAccount account = accountsByNumber.get(accountNumber);
+        return account == null ? Optional.empty() : Optional.of(account.toAccount());
+    }
+    
+    public Optional<Account> findAccount(Long id) {
+        LedgerAccount account = id == null ? null : accountsById.get(id);
+        return account == null ? Optional.empty() : Optional.of(account.toAccount());
+    }
+    
+    public List<Account> findAllAccounts() {
+        List<Account> accounts = new ArrayList<>(accountsById.size());
+        for (LedgerAccount account : accountsById.values()) {
+            accounts.add(account.toAccount());
+        }
+        accounts.sort(Comparator.comparing(Account::getId));
+        return Collections.unmodifiableList(accounts);
+    }
+    
+    // Blocks until every transfer committed so far is in the database; false on timeout
+    public boolean awaitPersisted(long timeoutMs) throws InterruptedException {
+        if (!running) {
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (int i = 0; i < partitionCount; i++) {
+            long target = partitions[i].getLastSequence();
+            while (writeBehind.getPersistedSequence(i) < target) {
+                if (writeBehind.isFailed() || System.nanoTime() - deadline > 0) {
+                    return false;
+                }
+                Thread.sleep(1);
+            }
+        }
+        return true;
+    }
+    
+    public int getWriteBehindQueueDepth() {
+        return writeBehind == null ? 0 : writeBehind.getQueueDepth();
+    }
+    
+    public long getPersistedCount() {
+        return writeBehind == null ? 0L : writeBehind.getPersistedCount();
+    }
+    
+    public long getWriteBehindFailureCount() {
+        return writeBehind == null ? 0L : writeBehind.getFailureCount();
+    }
+    
+    // True once the write-behind thread has died; transfers are rejected until a restart replays the journal
+    public boolean isWriteBehindFailed() {
+        return writeBehind != null && writeBehind.isFailed();
+    }
+    
+    public int getCommandQueueDepth() {
+        int depth = 0;
+        if (partitions != null) {
+            for (LedgerPartition partition : partitions) {
+                depth += partition.getQueueDepth();
+            }
+        }
+        return depth;
+    }
+    
+    @Override
+    public String toString() {
+        return "LedgerEngine{" +
+                "running=" + running +
+                ", partitions=" + partitionCount +
+                ", accounts=" + accountsByNumber.size() +
+                ", queuedCommands=" + getCommandQueueDepth() +
+                ", queuedWrites=" + getWriteBehindQueueDepth() +
+                ", persisted=" + getPersistedCount() +
+                ", writeFailures=" + getWriteBehindFailureCount() +
+                ", writeBehindFailed=" + isWriteBehindFailed() +
+                '}';
+    }
+    
+    LedgerPartition partitionFor(String accountNumber) {
+        return partitions[partitionIndex(accountNumber)];
+    }
+    
+    private int partitionIndex(String accountNumber) {
+        return Math.floorMod(accountNumber.hashCode(), partitionCount);
+    }
+    
+    // Writes journal entries the database has not seen yet, then discards the journal
+    private long[] recover() {
+        Map<Integer, Long> checkpoints = store.loadCheckpoints();
+        long[] sequences = new long[partitionCount];
+        try {
+            // Segments of a partition that no longer exists would never be replayed, and their
+            // transfers are already reflected in the balances the clients were told about
+            SortedSet<Integer> journalled = LedgerJournal.partitions(journalDirectory);
+            if (!journalled.isEmpty() && journalled.last() >= partitionCount) {
+                throw new IllegalStateException("Ledger journal in " + journalDirectory + " has entries for partition "
+                        + journalled.last() + " but banking.ledger.partitions=" + partitionCount
+                        + "; start once with the previous partition count to replay them");
+            }
+            for (int i = 0; i < partitionCount; i++) {
+                long checkpoint = checkpoints.getOrDefault(i, 0L);
+                List<LedgerEntry> replay = new ArrayList<>();
+                for (LedgerEntry entry : LedgerJournal.readAll(journalDirectory, i)) {
+                    if (entry.getSequence() > checkpoint) {
+                        replay.add(entry);
+                    }
+                }
+                for (int start = 0; start < replay.size(); start += writeBehindBatchSize) {
+                    store.persist(replay.subList(start, Math.min(start + writeBehindBatchSize, replay.size())));
+                }
+                if (!replay.isEmpty()) {
+                    System.out.println("Ledger partition " + i + ": replayed " + replay.size() + " journal entries");
+                    checkpoint = replay.get(replay.size() - 1).getSequence();
+                }
+                LedgerJournal.deleteAll(journalDirectory, i);
+                sequences[i] = checkpoint;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ledger journal recovery failed", e);
+        }
+        return sequences;
+    }
+    
+    static long toMinor(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+}
+
+// BankingService.java
+package com.example.banking.service;
+
+import com.example.banking.audit.AuditJournal;
+import com.example.banking.cache.AccountCache;
+import com.example.banking.config.BankingProperties;
+import com.example.banking.entity.Account;
+import com.example.banking.entity.FailureReason;
+import com.example.banking.entity.Money;
+import com.example.banking.entity.Transaction;
+import com.example.banking.entity.TransactionStatus;
+import com.example.banking.entity.TransferAudit;
+import com.example.banking.exception.AccountNotFoundException;
+import com.example.banking.exception.InsufficientFundsException;
+import com.example.banking.ledger.LedgerEngine;
+import com.example.banking.ledger.LedgerResult;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.ActivitySummary;
+import com.example.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+@Service
+public class BankingService {
+    
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransferProcessor transferProcessor;
+    private final TransferRetryPolicy retryPolicy;
+    private final BankingProperties properties;
+    private final LedgerEngine ledgerEngine;
+    private final AuditJournal auditJournal;
+    private final AccountCache accountCache;
+    
+    @Autowired
+    public BankingService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                          TransferProcessor transferProcessor, TransferRetryPolicy retryPolicy,
+                          BankingProperties properties, LedgerEngine ledgerEngine, AuditJournal auditJournal,
+                          AccountCache accountCache) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transferProcessor = transferProcessor;
+        this.retryPolicy = retryPolicy;
+        this.properties = properties;
+        this.ledgerEngine = ledgerEngine;
+        this.auditJournal = auditJournal;
+        this.accountCache = accountCache;
+    }
+    
+    @Transactional
+    public void createAccount(Account account) {
+        accountRepository.save(account);
+        if (ledgerEngine.isRunning()) {
+            // The ledger only learns about the account once the insert is committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ledgerEngine.register(account);
+                }
+            });
+        }
+    }
+    
+    // Account reads use SUPPORTS so that ledger and cache hits never check out a connection
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Account getAccountById(Long id) {
+        if (ledgerEngine.isRunning()) {
+            return ledgerEngine.findAccount(id).orElse(null);
+        }
+        Optional<Account> cached = accountCache.get(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Account account = accountRepository.findById(id);
+        accountCache.put(account);
+        return account;
+    }
+    
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Account getAccountByNumber(String accountNumber) throws AccountNotFoundException {
+        Optional<Account> account;
+        if (ledgerEngine.isRunning()) {
+            account = ledgerEngine.findAccount(accountNumber);
+        } else {
+            account = accountCache.get(accountNumber);
+            if (!account.isPresent()) {
+                account = accountRepository.findByAccountNumber(accountNumber);
+                account.ifPresent(accountCache::put);
+            }
+        }
+        return account.orElseThrow(
+                () -> new AccountNotFoundException("Account with number " + accountNumber + " not found"));
+    }
+    
+    // Always read from the database (or ledger); the result warms the cache
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<Account> getAllAccounts() {
+        if (ledgerEngine.isRunning()) {
+            return ledgerEngine.findAllAccounts();
+        }
+        List<Account> accounts = accountRepository.findAll();
+        accountCache.putAll(accounts);
+        return accounts;
     }
     
     @Transactional(readOnly = true)
@@ -418,73 +7097,589 @@ public class BankingService {
         return transactionRepository.findAll();
     }
     
-    @Transactional(rollbackFor = {InsufficientFundsException.class, AccountNotFoundException.class})
-    public void transferMoney(String fromAccountNumber, String toAccountNumber, BigDecimal amount) 
-            throws InsufficientFundsException, AccountNotFoundException {
+    // Newest-first history page; pass the previous page's next cursor (or null for the first page)
+    @Transactional(readOnly = true)
+    public TransactionPage getTransactionPage(TransactionCursor after, int pageSize) {
+        int limit = Math.max(1, Math.min(pageSize, properties.getHistoryMaxPageSize()));
+        List<Transaction> rows = transactionRepository.findPage(
+                after == null ? null : after.getTimestamp(), after == null ? null : after.getId(), limit + 1, true);
+        boolean hasMore = rows.size() > limit;
+        List<Transaction> items = hasMore ? rows.subList(0, limit) : rows;
+        TransactionCursor next = null;
+        if (hasMore) {
+            Transaction last = items.get(items.size() - 1);
+            next = new TransactionCursor(last.getTimestamp(), last.getId());
+        }
+        return new TransactionPage(items, next);
+    }
+    
+    // Most recent transactions with the given status. Only disbursement payouts are stored as FAILED
+    // rows; a failed single transfer leaves no transactions row and is only in transfer_audit
+    // (AuditStore.findByStatusSince).
+    @Transactional(readOnly = true)
+    public List<Transaction> getTransactionsByStatus(TransactionStatus status, LocalDateTime since, int limit) {
+        return transactionRepository.findByStatusSince(status, since,
+                Math.max(1, Math.min(limit, properties.getHistoryMaxPageSize())));
+    }
+    
+    // Same limit as getTransactionsByStatus: FAILED counts disbursement payouts only
+    @Transactional(readOnly = true)
+    public long countTransactionsByStatus(TransactionStatus status, LocalDateTime since) {
+        return transactionRepository.countByStatusSince(status, since);
+    }
+    
+    // One page of an account's successful activity in [from, to) plus totals over the whole range
+    @Transactional(readOnly = true)
+    public AccountStatement getAccountStatement(String accountNumber, LocalDateTime from, LocalDateTime to,
+                                                StatementDirection direction, TransactionCursor after, int pageSize)
+            throws AccountNotFoundException {
+        getAccountByNumber(accountNumber);
+        int limit = Math.max(1, Math.min(pageSize, properties.getHistoryMaxPageSize()));
+        LocalDateTime afterTimestamp = after == null ? null : after.getTimestamp();
+        Long afterId = after == null ? null : after.getId();
         
-        // Create and save the initial transaction record
-        Transaction transaction = new Transaction(fromAccountNumber, toAccountNumber, amount);
-        transactionRepository.save(transaction);
+        List<Transaction> rows;
+        if (direction == StatementDirection.ALL) {
+            // Two index range scans merged in (timestamp, id) order instead of one OR scan
+            List<Transaction> outgoing = transactionRepository.findByAccount(
+                    accountNumber, true, from, to, afterTimestamp, afterId, limit + 1, true);
+            List<Transaction> incoming = transactionRepository.findByAccount(
+                    accountNumber, false, from, to, afterTimestamp, afterId, limit + 1, true);
+            rows = mergeNewestFirst(outgoing, incoming, limit + 1);
+        } else {
+            rows = transactionRepository.findByAccount(accountNumber, direction == StatementDirection.OUTGOING,
+                    from, to, afterTimestamp, afterId, limit + 1, true);
+        }
+        
+        boolean hasMore = rows.size() > limit;
+        List<Transaction> entries = hasMore ? rows.subList(0, limit) : rows;
+        TransactionCursor next = null;
+        if (hasMore) {
+            Transaction last = entries.get(entries.size() - 1);
+            next = new TransactionCursor(last.getTimestamp(), last.getId());
+        }
+        
+        ActivitySummary incoming = direction == StatementDirection.OUTGOING
+                ? new ActivitySummary(0L, BigDecimal.ZERO)
+                : transactionRepository.summarizeByAccount(accountNumber, false, from, to, true);
+        ActivitySummary outgoing = direction == StatementDirection.INCOMING
+                ? new ActivitySummary(0L, BigDecimal.ZERO)
+                : transactionRepository.summarizeByAccount(accountNumber, true, from, to, true);
+        return new AccountStatement(accountNumber, from, to, direction, entries, next, incoming, outgoing);
+    }
+    
+    private static List<Transaction> mergeNewestFirst(List<Transaction> left, List<Transaction> right, int limit) {
+        List<Transaction> merged = new ArrayList<>(Math.min(limit, left.size() + right.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < left.size() || j < right.size())) {
+            Transaction candidate;
+            if (j >= right.size()) {
+                candidate = left.get(i++);
+            } else if (i >= left.size()) {
+                candidate = right.get(j++);
+            } else {
+                Transaction a = left.get(i);
+                Transaction b = right.get(j);
+                int order = b.getTimestamp().compareTo(a.getTimestamp());
+                if (order == 0) {
+                    order = b.getId().compareTo(a.getId());
+                }
+                if (order == 0) {
+                    // Self-transfer: present in both lists
+                    j++;
+                    candidate = left.get(i++);
+                } else {
+                    candidate = order < 0 ? left.get(i++) : right.get(j++);
+                }
+            }
+            merged.add(candidate);
+        }
+        return merged;
+    }
+    
+    // Visits every transaction newest first in constant memory (rows are detached as they go)
+    @Transactional(readOnly = true)
+    public void forEachTransaction(Consumer<Transaction> consumer) {
+        try (Stream<Transaction> transactions = transactionRepository.streamAll(properties.getHistoryFetchSize())) {
+            transactions.forEach(consumer);
+        }
+    }
+    
+    // Runs the function over a stream of all transactions; the stream is only valid inside the call
+    @Transactional(readOnly = true)
+    public <R> R streamTransactions(Function<Stream<Transaction>, R> function) {
+        try (Stream<Transaction> transactions = transactionRepository.streamAll(properties.getHistoryFetchSize())) {
+            return function.apply(transactions);
+        }
+    }
+    
+    public void transferMoney(String fromAccountNumber, String toAccountNumber, BigDecimal amount)
+            throws InsufficientFundsException, AccountNotFoundException {
+        TransferOutcome outcome = tryTransferMoney(fromAccountNumber, toAccountNumber, amount);
+        switch (outcome.getStatus()) {
+            case SUCCESS:
+                return;
+            case INSUFFICIENT_FUNDS:
+                throw new InsufficientFundsException(outcome.getMessage());
+            case ACCOUNT_NOT_FOUND:
+                throw new AccountNotFoundException(outcome.getMessage());
+            case INVALID_AMOUNT:
+            case SAME_ACCOUNT:
+                throw new IllegalArgumentException(outcome.getMessage());
+            default:
+                throw new IllegalStateException(outcome.getMessage());
+        }
+    }
+    
+    // Same as transferMoney, but business failures come back as an outcome instead of an exception;
+    // only infrastructure errors that survive the retries are thrown. Every attempt is audited.
+    public TransferOutcome tryTransferMoney(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+        TransferOutcome outcome;
+        try {
+            outcome = executeTransfer(fromAccountNumber, toAccountNumber, amount);
+        } catch (RuntimeException e) {
+            auditJournal.record(new TransferAudit(fromAccountNumber, toAccountNumber, amount,
+                    TransactionStatus.FAILED, FailureReason.SYSTEM_ERROR, null));
+            throw e;
+        }
+        auditJournal.record(new TransferAudit(fromAccountNumber, toAccountNumber, amount,
+                outcome.isSuccessful() ? TransactionStatus.SUCCESS : TransactionStatus.FAILED,
+                toFailureReason(outcome.getStatus()), outcome.getTransactionId()));
+        return outcome;
+    }
+    
+    private TransferOutcome executeTransfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            return TransferOutcome.failure(TransferStatus.INVALID_AMOUNT, null);
+        }
+        if (fromAccountNumber == null || toAccountNumber == null) {
+            return TransferOutcome.failure(TransferStatus.ACCOUNT_NOT_FOUND, null);
+        }
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            return TransferOutcome.failure(TransferStatus.SAME_ACCOUNT, fromAccountNumber);
+        }
+        if (ledgerEngine.isRunning()) {
+            return toOutcome(ledgerEngine.transfer(fromAccountNumber, toAccountNumber, amount).join());
+        }
         
+        // Converted once; a fraction of a cent cannot be booked
+        Money money;
         try {
-            // Retrieve the accounts
-            Account fromAccount = getAccountByNumber(fromAccountNumber);
-            Account toAccount = getAccountByNumber(toAccountNumber);
-            
-            // Check for sufficient funds
-            if (fromAccount.getBalance().compareTo(amount) < 0) {
-                transaction.setStatus("FAILED - INSUFFICIENT FUNDS");
-                transactionRepository.save(transaction);
-                throw new InsufficientFundsException("Insufficient funds in account " + fromAccountNumber);
+            money = Money.of(amount);
+        } catch (ArithmeticException e) {
+            return TransferOutcome.failure(TransferStatus.INVALID_AMOUNT, null);
+        }
+        
+        // Each attempt runs in its own transaction; only lock conflicts and deadlocks are retried
+        int attempt = 1;
+        while (true) {
+            try {
+                return transferProcessor.transfer(fromAccountNumber, toAccountNumber, money);
+            } catch (RuntimeException e) {
+                if (!retryPolicy.shouldRetry(e, attempt++)) {
+                    throw e;
+                }
             }
-            
-            // Perform the transfer
-            fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-            toAccount.setBalance(toAccount.getBalance().add(amount));
-            
-            // Save the updated accounts
-            accountRepository.save(fromAccount);
-            accountRepository.save(toAccount);
-            
-            // Update transaction status
-            transaction.setStatus("SUCCESS");
-            transactionRepository.save(transaction);
-            
-        } catch (AccountNotFoundException | InsufficientFundsException e) {
-            // Update transaction status if not already done
-            if (transaction.getStatus().equals("PENDING")) {
-                transaction.setStatus("FAILED - " + e.getMessage());
-                transactionRepository.save(transaction);
+        }
+    }
+    
+    private static FailureReason toFailureReason(TransferStatus status) {
+        switch (status) {
+            case SUCCESS:
+                return null;
+            case INVALID_AMOUNT:
+                return FailureReason.INVALID_AMOUNT;
+            case SAME_ACCOUNT:
+                return FailureReason.SAME_ACCOUNT;
+            case ACCOUNT_NOT_FOUND:
+                return FailureReason.ACCOUNT_NOT_FOUND;
+            case INSUFFICIENT_FUNDS:
+                return FailureReason.INSUFFICIENT_FUNDS;
+            default:
+                return FailureReason.REJECTED;
+        }
+    }
+    
+    // Pays many destinations from one source account in a single transaction; failed payouts
+    // are reported per item and do not abort the batch
+    public DisbursementResult disburse(String fromAccountNumber, List<Payout> payouts)
+            throws AccountNotFoundException {
+        if (ledgerEngine.isRunning()) {
+            return disburseThroughLedger(fromAccountNumber, payouts);
+        }
+        int attempt = 1;
+        while (true) {
+            try {
+                return transferProcessor.disburse(fromAccountNumber, payouts);
+            } catch (RuntimeException e) {
+                if (!retryPolicy.shouldRetry(e, attempt++)) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    // All payouts share the source partition, so they are applied in submission order;
+    // transaction ids are assigned later by write-behind and are not reported here
+    private DisbursementResult disburseThroughLedger(String fromAccountNumber, List<Payout> payouts)
+            throws AccountNotFoundException {
+        getAccountByNumber(fromAccountNumber);
+        List<CompletableFuture<LedgerResult>> futures = new ArrayList<>(payouts.size());
+        for (Payout payout : payouts) {
+            if (payout.getToAccountNumber() == null || payout.getAmount() == null || payout.getAmount().signum() <= 0
+                    || payout.getToAccountNumber().equals(fromAccountNumber)) {
+                futures.add(null);
+            } else {
+                futures.add(ledgerEngine.transfer(fromAccountNumber, payout.getToAccountNumber(), payout.getAmount()));
+            }
+        }
+        
+        List<PayoutResult> results = new ArrayList<>(payouts.size());
+        BigDecimal disbursed = BigDecimal.ZERO;
+        for (int i = 0; i < payouts.size(); i++) {
+            Payout payout = payouts.get(i);
+            CompletableFuture<LedgerResult> future = futures.get(i);
+            PayoutStatus status;
+            if (future == null) {
+                status = payout.getToAccountNumber() != null && payout.getToAccountNumber().equals(fromAccountNumber)
+                        ? PayoutStatus.SAME_ACCOUNT : PayoutStatus.INVALID_PAYOUT;
+            } else {
+                LedgerResult result = future.join();
+                switch (result.getStatus()) {
+                    case COMMITTED:
+                        status = PayoutStatus.SUCCESS;
+                        disbursed = disbursed.add(payout.getAmount());
+                        break;
+                    case INSUFFICIENT_FUNDS:
+                        status = PayoutStatus.INSUFFICIENT_FUNDS;
+                        break;
+                    case ACCOUNT_NOT_FOUND:
+                        status = PayoutStatus.ACCOUNT_NOT_FOUND;
+                        break;
+                    case INVALID_AMOUNT:
+                        status = PayoutStatus.INVALID_PAYOUT;
+                        break;
+                    case SAME_ACCOUNT:
+                        status = PayoutStatus.SAME_ACCOUNT;
+                        break;
+                    default:
+                        throw new IllegalStateException("Ledger rejected payout " + payout);
+                }
+            }
+            results.add(new PayoutResult(payout, status, null));
+        }
+        return new DisbursementResult(fromAccountNumber, results, disbursed);
+    }
+    
+    private static TransferOutcome toOutcome(LedgerResult result) {
+        switch (result.getStatus()) {
+            case COMMITTED:
+                return TransferOutcome.success(null);
+            case INSUFFICIENT_FUNDS:
+                return TransferOutcome.failure(TransferStatus.INSUFFICIENT_FUNDS, result.getAccountNumber());
+            case ACCOUNT_NOT_FOUND:
+                return TransferOutcome.failure(TransferStatus.ACCOUNT_NOT_FOUND, result.getAccountNumber());
+            case INVALID_AMOUNT:
+                return TransferOutcome.failure(TransferStatus.INVALID_AMOUNT, null);
+            case SAME_ACCOUNT:
+                return TransferOutcome.failure(TransferStatus.SAME_ACCOUNT, result.getAccountNumber());
+            default:
+                return TransferOutcome.failure(TransferStatus.REJECTED, null);
+        }
+    }
+}
+
+// AsyncExecutorMode.java
+package com.example.banking.service;
+
+// Threads behind AsyncBankingService (banking.async.executor)
+public enum AsyncExecutorMode {
+    // Fixed pool of banking.async.maxInFlight platform threads
+    PLATFORM,
+    // One virtual thread per call; needs JDK 21+, falls back to PLATFORM otherwise
+    VIRTUAL
+}
+
+// AsyncAdmissionPolicy.java
+package com.example.banking.service;
+
+// What AsyncBankingService does when banking.async.maxInFlight calls are already running
+public enum AsyncAdmissionPolicy {
+    // Fail the call immediately
+    REJECT,
+    // Queue up to banking.async.queueSize calls, then fail
+    QUEUE
+}
+
+// AsyncBankingService.java
+package com.example.banking.service;
+
+import com.example.banking.config.BankingProperties;
+import com.example.banking.entity.Account;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Non-blocking front for BankingService. At most banking.async.maxInFlight calls run at once
+// (sized to the connection pool by default), so callers never pile up waiting for a connection;
+// beyond that calls are queued or rejected per banking.async.admission. Rejected transfers
+// complete with a REJECTED outcome, rejected reads fail with RejectedExecutionException.
+@Service
+public class AsyncBankingService implements SmartLifecycle {
+    
+    private final BankingService bankingService;
+    private final AsyncExecutorMode requestedMode;
+    private final int maxInFlight;
+    private final Semaphore admitted;
+    private final Semaphore executing;
+    private final long shutdownTimeoutMs;
+    
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean running;
+    private AsyncExecutorMode mode;
+    private ExecutorService executor;
+    
+    @Autowired
+    public AsyncBankingService(BankingService bankingService, BankingProperties properties) {
+        this.bankingService = bankingService;
+        this.requestedMode = properties.getAsyncExecutorMode();
+        this.maxInFlight = Math.max(1, properties.getAsyncMaxInFlight());
+        int queueSize = properties.getAsyncAdmissionPolicy() == AsyncAdmissionPolicy.QUEUE
+                ? Math.max(0, properties.getAsyncQueueSize())
+                : 0;
+        this.admitted = new Semaphore(maxInFlight + queueSize);
+        this.executing = new Semaphore(maxInFlight);
+        this.shutdownTimeoutMs = properties.getAsyncShutdownTimeoutMs();
+    }
+    
+    public CompletableFuture<TransferOutcome> transferMoneyAsync(String fromAccountNumber, String toAccountNumber,
+                                                                 BigDecimal amount) {
+        if (!admit()) {
+            return CompletableFuture.completedFuture(TransferOutcome.failure(TransferStatus.REJECTED, fromAccountNumber));
+        }
+        return execute(() -> bankingService.tryTransferMoney(fromAccountNumber, toAccountNumber, amount));
+    }
+    
+    // Completes exceptionally with AccountNotFoundException for unknown accounts
+    public CompletableFuture<Account> getAccountByNumberAsync(String accountNumber) {
+        return submit(() -> bankingService.getAccountByNumber(accountNumber));
+    }
+    
+    public CompletableFuture<List<Account>> getAllAccountsAsync() {
+        return submit(bankingService::getAllAccounts);
+    }
+    
+    public CompletableFuture<TransactionPage> getTransactionPageAsync(TransactionCursor after, int pageSize) {
+        return submit(() -> bankingService.getTransactionPage(after, pageSize));
+    }
+    
+    public CompletableFuture<AccountStatement> getAccountStatementAsync(String accountNumber, LocalDateTime from,
+                                                                        LocalDateTime to, StatementDirection direction,
+                                                                        TransactionCursor after, int pageSize) {
+        return submit(() -> bankingService.getAccountStatement(accountNumber, from, to, direction, after, pageSize));
+    }
+    
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        mode = requestedMode;
+        executor = mode == AsyncExecutorMode.VIRTUAL ? newVirtualThreadExecutor() : null;
+        if (executor == null) {
+            mode = AsyncExecutorMode.PLATFORM;
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(maxInFlight, task -> {
+                Thread thread = new Thread(task, "banking-async-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        running = true;
+    }
+    
+    // Stops taking new calls and lets queued ones finish
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                System.err.println("Async banking executor did not drain within " + shutdownTimeoutMs + " ms");
+                executor.shutdownNow();
             }
-            throw e; // Re-throw to trigger rollback
-        } catch (Exception e) {
-            // Handle unexpected errors
-            transaction.setStatus("FAILED - SYSTEM ERROR");
-            transactionRepository.save(transaction);
-            throw e; // Re-throw to trigger rollback
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public AsyncExecutorMode getMode() {
+        return mode;
+    }
+    
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+    
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    private <T> CompletableFuture<T> submit(Callable<T> call) {
+        if (!admit()) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Banking service is saturated (" + maxInFlight + " calls in flight)"));
+        }
+        return execute(call);
+    }
+    
+    private boolean admit() {
+        if (running && admitted.tryAcquire()) {
+            submitted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+    
+    // Runs an admitted call; the permit is given back whatever happens
+    private <T> CompletableFuture<T> execute(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                T result = null;
+                Throwable failure = null;
+                try {
+                    executing.acquire();
+                    inFlight.incrementAndGet();
+                    try {
+                        result = call.call();
+                    } finally {
+                        inFlight.decrementAndGet();
+                        executing.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = e;
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    admitted.release();
+                }
+                // Permits are returned before the caller can observe the result
+                if (failure == null) {
+                    future.complete(result);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    // Executors.newVirtualThreadPerTaskExecutor exists from JDK 21; looked up reflectively so the
+    // project still builds for Java 11
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads need JDK 21+ (running " + Runtime.version()
+                    + "); using platform threads");
+            return null;
         }
     }
+    
+    @Override
+    public String toString() {
+        return "AsyncBankingService{" +
+                "mode=" + mode +
+                ", maxInFlight=" + maxInFlight +
+                ", inFlight=" + inFlight.get() +
+                ", submitted=" + submitted.sum() +
+                ", rejected=" + rejected.sum() +
+                '}';
+    }
 }
 
 // Main.java
 package com.example.banking;
 
-import com.example.banking.config.AppConfig;
+import com.example.banking.archive.TransactionArchiver;
+import com.example.banking.audit.AuditJournal;
+import com.example.banking.audit.AuditStore;
+import com.example.banking.cache.AccountCache;
+import com.example.banking.config.BankingContext;
 import com.example.banking.entity.Account;
 import com.example.banking.entity.Transaction;
+import com.example.banking.entity.TransactionStatus;
+import com.example.banking.entity.TransferAudit;
 import com.example.banking.exception.AccountNotFoundException;
 import com.example.banking.exception.InsufficientFundsException;
+import com.example.banking.ledger.LedgerEngine;
+import com.example.banking.metrics.ConnectionPoolMetrics;
+import com.example.banking.metrics.HibernateCacheMetrics;
+import com.example.banking.reconcile.BalanceMismatch;
+import com.example.banking.reconcile.BalanceReconciler;
+import com.example.banking.reconcile.ReconciliationReport;
+import com.example.banking.service.AccountStatement;
+import com.example.banking.service.AsyncBankingService;
 import com.example.banking.service.BankingService;
+import com.example.banking.service.DisbursementResult;
+import com.example.banking.service.Payout;
+import com.example.banking.service.PayoutResult;
+import com.example.banking.service.StatementDirection;
+import com.example.banking.service.TransactionCursor;
+import com.example.banking.service.TransactionPage;
+import com.example.banking.service.TransferOutcome;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
     public static void main(String[] args) {
         // Initialize Spring context
-        AnnotationConfigApplicationContext context = 
-            new AnnotationConfigApplicationContext(AppConfig.class);
+        AnnotationConfigApplicationContext context = BankingContext.start();
         
         // Get BankingService bean
         BankingService bankingService = context.getBean(BankingService.class);
@@ -539,10 +7734,137 @@ public class Main {
                 System.out.println("Transaction failed as expected: " + e.getMessage());
             }
             
+            // Same failure through the exception-free API
+            TransferOutcome outcome = bankingService.tryTransferMoney("ACC003", "ACC001", new BigDecimal("500.00"));
+            System.out.println("Outcome: " + outcome + " - " + outcome.getMessage());
+            
+            // Several transfers in flight at once on the bounded async executor
+            System.out.println("\n--- Asynchronous Transfers ---");
+            AsyncBankingService asyncBankingService = context.getBean(AsyncBankingService.class);
+            List<CompletableFuture<TransferOutcome>> transfers = Arrays.asList(
+                    asyncBankingService.transferMoneyAsync("ACC001", "ACC003", new BigDecimal("10.00")),
+                    asyncBankingService.transferMoneyAsync("ACC002", "ACC003", new BigDecimal("10.00")),
+                    asyncBankingService.transferMoneyAsync("ACC003", "ACC999", new BigDecimal("10.00")));
+            for (CompletableFuture<TransferOutcome> transfer : transfers) {
+                System.out.println(transfer.join());
+            }
+            System.out.println(asyncBankingService);
+            
+            // Disburse from one account to several destinations in a single batch
+            System.out.println("\n--- Disbursing Payouts ---");
+            try {
+                DisbursementResult disbursement = bankingService.disburse("ACC002", Arrays.asList(
+                        new Payout("ACC001", new BigDecimal("100.00")),
+                        new Payout("ACC003", new BigDecimal("150.00")),
+                        new Payout("ACC999", new BigDecimal("10.00")),
+                        new Payout("ACC003", new BigDecimal("1000.00"))));
+                System.out.println(disbursement);
+                for (PayoutResult result : disbursement.getResults()) {
+                    System.out.println(result);
+                }
+            } catch (AccountNotFoundException e) {
+                System.out.println("Disbursement failed: " + e.getMessage());
+            }
+            displayAccounts(bankingService.getAllAccounts());
+            
+            // With the ledger enabled the history is written behind; let it catch up first
+            LedgerEngine ledgerEngine = context.getBean(LedgerEngine.class);
+            if (ledgerEngine.isRunning()) {
+                try {
+                    ledgerEngine.awaitPersisted(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                System.out.println(ledgerEngine);
+            }
+            
             // Display transaction history
             System.out.println("\n--- Transaction History ---");
             displayTransactions(bankingService.getAllTransactions());
             
+            // Failed disbursement payouts in the last hour, straight off the (status, timestamp) index;
+            // failed single transfers are listed with the audit trail below
+            System.out.println("\n--- Failed Payouts (last hour) ---");
+            LocalDateTime lastHour = LocalDateTime.now().minusHours(1);
+            System.out.println(bankingService.countTransactionsByStatus(TransactionStatus.FAILED, lastHour) + " failed");
+            displayTransactions(bankingService.getTransactionsByStatus(TransactionStatus.FAILED, lastHour, 50));
+            
+            // Statement for one account over the last day
+            System.out.println("\n--- Statement for ACC002 ---");
+            try {
+                AccountStatement statement = bankingService.getAccountStatement("ACC002",
+                        LocalDateTime.now().minusDays(1), null, StatementDirection.ALL, null, 50);
+                System.out.println(statement);
+                displayTransactions(statement.getEntries());
+            } catch (AccountNotFoundException e) {
+                System.out.println("Statement failed: " + e.getMessage());
+            }
+            
+            // Page through the same history with a keyset cursor
+            System.out.println("\n--- Transaction History (pages of 2) ---");
+            TransactionCursor cursor = null;
+            int pageNumber = 1;
+            do {
+                TransactionPage page = bankingService.getTransactionPage(cursor, 2);
+                System.out.println("Page " + pageNumber++ + ":");
+                displayTransactions(page.getItems());
+                cursor = page.getNext();
+            } while (cursor != null);
+            
+            // Display connection pool statistics
+            System.out.println("\n--- Connection Pool ---");
+            System.out.println(context.getBean(ConnectionPoolMetrics.class));
+            System.out.println(context.getBean(HibernateCacheMetrics.class));
+            System.out.println(context.getBean(AccountCache.class));
+            
+            // Audit trail of transfer attempts, including the ones that failed
+            System.out.println("\n--- Transfer Audit ---");
+            AuditJournal auditJournal = context.getBean(AuditJournal.class);
+            try {
+                auditJournal.awaitWritten(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            System.out.println(auditJournal);
+            AuditStore auditStore = context.getBean(AuditStore.class);
+            for (TransferAudit audit : auditStore.findRecent(10)) {
+                System.out.println(audit);
+            }
+            System.out.println("Failed transfer attempts (last hour):");
+            for (TransferAudit audit : auditStore.findByStatusSince(TransactionStatus.FAILED, lastHour, 10)) {
+                System.out.println(audit);
+            }
+            
+            // Snapshot balances, then check them against a replay of the log
+            System.out.println("\n--- Reconciliation ---");
+            BalanceReconciler reconciler = context.getBean(BalanceReconciler.class);
+            try {
+                System.out.println("Snapshots: " + reconciler.takeSnapshots());
+                ReconciliationReport report = reconciler.reconcile();
+                System.out.println("Check: " + report);
+                for (BalanceMismatch mismatch : report.getMismatches()) {
+                    System.out.println(mismatch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            
+            // Move everything to the cold tier; history, statements and reconciliation still see it
+            System.out.println("\n--- Archiving ---");
+            TransactionArchiver archiver = context.getBean(TransactionArchiver.class);
+            System.out.println("Archived " + archiver.archiveOlderThan(LocalDateTime.now()) + " transactions");
+            System.out.println(archiver);
+            displayTransactions(bankingService.getTransactionPage(null, 5).getItems());
+            try {
+                System.out.println(bankingService.getAccountStatement("ACC002",
+                        LocalDateTime.now().minusDays(1), null, StatementDirection.ALL, null, 50));
+                System.out.println("Check: " + reconciler.reconcile());
+            } catch (AccountNotFoundException e) {
+                System.out.println("Statement failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            
         } finally {
             // Close the Spring context
             context.close();
@@ -562,15 +7884,899 @@ public class Main {
     }
 }
 
+// LoadGenerator.java
+package com.example.banking;
+
+import com.example.banking.config.BankingContext;
+import com.example.banking.entity.Account;
+import com.example.banking.exception.AccountNotFoundException;
+import com.example.banking.exception.InsufficientFundsException;
+import com.example.banking.ledger.LedgerEngine;
+import com.example.banking.metrics.LatencyHistogram;
+import com.example.banking.reconcile.BalanceMismatch;
+import com.example.banking.reconcile.BalanceReconciler;
+import com.example.banking.reconcile.ReconciliationReport;
+import com.example.banking.service.BankingService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Concurrent transfer load against the configured database. Creates load.accounts accounts,
+// then for every client count in load.clients runs that many threads calling transferMoney for
+// load.durationSeconds, reporting throughput and latency percentiles. After each round the sum
+// of all balances must equal the amount seeded, and at the end every account must reconcile with
+// the transaction log against the snapshots taken after seeding; the process exits with 1 if not.
+//
+//   -Dload.accounts=1000 -Dload.clients=1,4,16 -Dload.durationSeconds=30
+//   -Dload.distribution=uniform|zipf -Dload.zipfExponent=1.0
+public class LoadGenerator {
+    
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+    
+    public static void main(String[] args) throws Exception {
+        int accounts = Integer.getInteger("load.accounts", 1000);
+        if (accounts < 2) {
+            // Every transfer needs a destination other than its source
+            throw new IllegalArgumentException("load.accounts must be at least 2, was " + accounts);
+        }
+        long durationMillis = TimeUnit.SECONDS.toMillis(Long.getLong("load.durationSeconds", 30L));
+        String distribution = System.getProperty("load.distribution", "uniform");
+        double zipfExponent = Double.parseDouble(System.getProperty("load.zipfExponent", "1.0"));
+        AccountPicker picker = "zipf".equalsIgnoreCase(distribution)
+                ? new ZipfPicker(accounts, zipfExponent)
+                : new UniformPicker(accounts);
+        
+        AnnotationConfigApplicationContext context = BankingContext.start();
+        BankingService bankingService = context.getBean(BankingService.class);
+        LedgerEngine ledgerEngine = context.getBean(LedgerEngine.class);
+        BalanceReconciler reconciler = context.getBean(BalanceReconciler.class);
+        boolean consistent = true;
+        
+        try {
+            System.out.println("Creating " + accounts + " accounts...");
+            String[] accountNumbers = new String[accounts];
+            for (int i = 0; i < accounts; i++) {
+                accountNumbers[i] = String.format("LOAD%06d", i);
+                bankingService.createAccount(new Account(accountNumbers[i], "Load client " + i, INITIAL_BALANCE));
+            }
+            BigDecimal expectedTotal = INITIAL_BALANCE.multiply(BigDecimal.valueOf(accounts));
+            reconciler.takeSnapshots();
+            
+            System.out.println("Distribution: " + distribution
+                    + ("zipf".equalsIgnoreCase(distribution) ? " (s=" + zipfExponent + ")" : ""));
+            for (String value : System.getProperty("load.clients", "1,4,16").split(",")) {
+                int clients = Integer.parseInt(value.trim());
+                Round round = new Round(bankingService, accountNumbers, picker);
+                round.run(clients, durationMillis);
+                System.out.println(round.report(clients));
+                
+                if (ledgerEngine.isRunning()) {
+                    ledgerEngine.awaitPersisted(TimeUnit.MINUTES.toMillis(1));
+                }
+                BigDecimal total = totalBalance(bankingService);
+                if (total.compareTo(expectedTotal) != 0) {
+                    consistent = false;
+                    System.out.println("  INVARIANT VIOLATED: balances sum to " + total + ", expected " + expectedTotal);
+                } else {
+                    System.out.println("  Balance total unchanged: " + total);
+                }
+            }
+            
+            ReconciliationReport report = reconciler.reconcile();
+            System.out.println("Reconciliation: " + report);
+            for (BalanceMismatch mismatch : report.getMismatches()) {
+                consistent = false;
+                System.out.println("  " + mismatch);
+            }
+        } finally {
+            context.close();
+        }
+        
+        if (!consistent) {
+            System.exit(1);
+        }
+    }
+    
+    private static BigDecimal totalBalance(BankingService bankingService) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account account : bankingService.getAllAccounts()) {
+            if (account.getAccountNumber().startsWith("LOAD")) {
+                total = total.add(account.getBalance().toBigDecimal());
+            }
+        }
+        return total;
+    }
+    
+    // One measurement at a fixed number of clients
+    private static class Round {
+        
+        private final BankingService bankingService;
+        private final String[] accountNumbers;
+        private final AccountPicker picker;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder insufficientFunds = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private long elapsedNanos;
+        
+        Round(BankingService bankingService, String[] accountNumbers, AccountPicker picker) {
+            this.bankingService = bankingService;
+            this.accountNumbers = accountNumbers;
+            this.picker = picker;
+        }
+        
+        void run(int clients, long durationMillis) throws Exception {
+            ExecutorService executor = Executors.newFixedThreadPool(clients);
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            try {
+                List<Future<?>> futures = new ArrayList<>(clients);
+                for (int i = 0; i < clients; i++) {
+                    futures.add(executor.submit(() -> runClient(deadline)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            elapsedNanos = System.nanoTime() - start;
+        }
+        
+        private void runClient(long deadline) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline) {
+                int from = picker.next(random);
+                int to = picker.next(random);
+                while (to == from) {
+                    to = picker.next(random);
+                }
+                // 0.01 - 10.00, small enough that most transfers succeed
+                BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(1000), 2);
+                
+                long started = System.nanoTime();
+                try {
+                    bankingService.transferMoney(accountNumbers[from], accountNumbers[to], amount);
+                    succeeded.increment();
+                } catch (InsufficientFundsException e) {
+                    insufficientFunds.increment();
+                } catch (AccountNotFoundException | RuntimeException e) {
+                    errors.increment();
+                } finally {
+                    latency.record(System.nanoTime() - started);
+                }
+            }
+        }
+        
+        String report(int clients) {
+            long attempts = latency.getCount();
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("clients=%d transfers=%d (ok=%d, insufficient=%d, errors=%d) throughput=%.1f/s "
+                            + "latency ms p50=%.2f p99=%.2f p999=%.2f max=%.2f",
+                    clients, attempts, succeeded.sum(), insufficientFunds.sum(), errors.sum(), attempts / seconds,
+                    millis(latency.getPercentileNanos(0.50)), millis(latency.getPercentileNanos(0.99)),
+                    millis(latency.getPercentileNanos(0.999)), millis(latency.getMaxNanos()));
+        }
+        
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+    
+    private interface AccountPicker {
+        int next(ThreadLocalRandom random);
+    }
+    
+    private static class UniformPicker implements AccountPicker {
+        
+        private final int accounts;
+        
+        UniformPicker(int accounts) {
+            this.accounts = accounts;
+        }
+        
+        @Override
+        public int next(ThreadLocalRandom random) {
+            return random.nextInt(accounts);
+        }
+    }
+    
+    // Account i is picked with probability proportional to 1 / (i + 1)^s, so low indexes are hot
+    private static class ZipfPicker implements AccountPicker {
+        
+        private final double[] cumulative;
+        
+        ZipfPicker(int accounts, double exponent) {
+            cumulative = new double[accounts];
+            double sum = 0.0;
+            for (int i = 0; i < accounts; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < accounts; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+        
+        @Override
+        public int next(ThreadLocalRandom random) {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
+
+// migrate-transaction-status.sql
+-- One-off migration of transactions.status from free text to TransactionStatus / FailureReason codes.
+-- Run against an existing banking_db before starting this version (dev uses hbm2ddl create-drop).
+ALTER TABLE transactions
+    ADD COLUMN status_code TINYINT NULL,
+    ADD COLUMN failure_reason TINYINT NULL;
+
+-- On large tables run this in id ranges (AND id BETWEEN ? AND ?) to keep each transaction short
+UPDATE transactions
+SET status_code = CASE
+        WHEN status = 'PENDING' THEN 0
+        WHEN status = 'SUCCESS' THEN 1
+        ELSE 2
+    END,
+    failure_reason = CASE
+        WHEN status = 'FAILED - INSUFFICIENT FUNDS' THEN 1
+        WHEN status LIKE 'FAILED - Account with number % not found' THEN 2
+        WHEN status = 'FAILED - SAME_ACCOUNT' THEN 3
+        WHEN status = 'FAILED - INVALID_PAYOUT' THEN 4
+        WHEN status LIKE 'FAILED%' THEN 5
+        ELSE NULL
+    END
+WHERE status_code IS NULL;
+
+ALTER TABLE transactions
+    DROP COLUMN status,
+    CHANGE COLUMN status_code status TINYINT NOT NULL;
+
+CREATE INDEX idx_transactions_status_timestamp ON transactions (status, timestamp);
+
+-- Failed single transfers are only recorded in transfer_audit; AuditStore.findByStatusSince reads them here
+CREATE INDEX idx_transfer_audit_status_timestamp ON transfer_audit (status, timestamp);
+
+// create-transaction-archive.sql
+-- Cold tier for TransactionArchiver (banking.archive.*), for databases not managed by hbm2ddl.
+-- Same columns as transactions; ids are copied, not generated.
+CREATE TABLE transactions_archive (
+    id BIGINT NOT NULL,
+    from_account VARCHAR(255) NOT NULL,
+    to_account VARCHAR(255) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    timestamp DATETIME(6) NOT NULL,
+    status TINYINT NOT NULL,
+    failure_reason TINYINT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_transactions_archive_timestamp_id (timestamp, id),
+    INDEX idx_transactions_archive_from_account_timestamp (from_account, timestamp),
+    INDEX idx_transactions_archive_to_account_timestamp (to_account, timestamp)
+);
+
+-- Successful archived activity per account and day; statements read whole days from here
+CREATE TABLE account_daily_activity (
+    account_number VARCHAR(255) NOT NULL,
+    activity_date DATE NOT NULL,
+    incoming_count BIGINT NOT NULL,
+    incoming_total DECIMAL(19, 2) NOT NULL,
+    outgoing_count BIGINT NOT NULL,
+    outgoing_total DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (account_number, activity_date)
+);
+
+// create-balance-snapshots.sql
+-- Snapshot table for BalanceReconciler (banking.snapshot.*, banking.reconcile.*), for databases not
+-- managed by hbm2ddl. Accounts without a row are baselined from their stored balance on the next run.
+CREATE TABLE balance_snapshots (
+    account_number VARCHAR(255) NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL,
+    last_transaction_id BIGINT NOT NULL,
+    taken_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (account_number)
+);
+
+// create-transaction-sequence.sql
+-- Table-backed transaction_seq for Transaction ids (pooled, allocationSize = 50) on MySQL, for databases
+-- not managed by hbm2ddl. Run once, with writers stopped, before starting this version.
+CREATE TABLE transaction_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+-- The pooled optimizer hands out (next_val - 49 .. next_val) from the first value it reads, so seed one
+-- allocation above the highest id already used; archived ids keep their values and count as used too
+INSERT INTO transaction_seq (next_val)
+SELECT GREATEST(
+           (SELECT COALESCE(MAX(id), 0) FROM transactions),
+           (SELECT COALESCE(MAX(id), 0) FROM transactions_archive)
+       ) + 50;
+
+// MpscRingBufferTest.java
+package com.example.banking.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscRingBufferTest {
+    
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(8, new MpscRingBuffer<Integer>(5).capacity());
+        assertEquals(8, new MpscRingBuffer<Integer>(8).capacity());
+        assertEquals(16, new MpscRingBuffer<Integer>(9).capacity());
+    }
+    
+    @Test
+    void rejectsWhenFullAndReusesSlotsAfterWraparound() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        int offered = 0;
+        int polled = 0;
+        for (int lap = 0; lap < 10; lap++) {
+            while (buffer.offer(offered)) {
+                offered++;
+            }
+            assertEquals(buffer.capacity(), buffer.size());
+            assertFalse(buffer.offer(-1));
+            for (int i = 0; i < 3; i++) {
+                assertEquals(Integer.valueOf(polled++), buffer.poll());
+            }
+        }
+        while (!buffer.isEmpty()) {
+            assertEquals(Integer.valueOf(polled++), buffer.poll());
+        }
+        assertEquals(offered, polled);
+        assertNull(buffer.poll());
+    }
+    
+    // A small buffer wraps thousands of times; every element must arrive exactly once and each
+    // producer's elements in the order it offered them. Waiting threads yield rather than spin so
+    // the test also makes progress on a single core.
+    @Test
+    @Timeout(value = 60, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void multipleProducersWrapAroundWithoutLossOrDuplicates() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 100_000;
+        MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    Long element = producer * perProducer + i;
+                    while (!buffer.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            }, "producer-" + p);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        
+        long[] next = new long[producers];
+        long received = 0;
+        start.countDown();
+        while (received < (long) producers * perProducer) {
+            assertTrue(buffer.size() <= buffer.capacity());
+            Long element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) (element / perProducer);
+            assertEquals(next[producer]++, element % perProducer);
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+        for (long count : next) {
+            assertEquals(perProducer, count);
+        }
+    }
+}
+
+// LedgerJournalTest.java
+package com.example.banking.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LedgerJournalTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void readsBackEveryEntryInSequenceOrder() throws IOException {
+        write(1, 5, Long.MAX_VALUE);
+        
+        List<LedgerEntry> entries = LedgerJournal.readAll(directory, 0);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sequences(entries));
+        LedgerEntry first = entries.get(0);
+        assertEquals("ACC001", first.getFromAccount());
+        assertEquals("ACC002", first.getToAccount());
+        assertEquals(101L, first.getAmountMinor());
+        assertEquals(0, first.getPartition());
+    }
+    
+    @Test
+    void readsAcrossSegments() throws IOException {
+        // Every flush closes the segment, so each entry gets a file of its own
+        write(1, 12, 1);
+        
+        assertEquals(12, segments().size());
+        assertEquals(12, LedgerJournal.readAll(directory, 0).size());
+        assertEquals(List.of(), LedgerJournal.readAll(directory, 1));
+    }
+    
+    @Test
+    void replayStopsAtTornTailRecord() throws IOException {
+        write(1, 5, Long.MAX_VALUE);
+        Path segment = segments().get(0);
+        byte[] data = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(data, data.length - 3));
+        
+        assertEquals(List.of(1L, 2L, 3L, 4L), sequences(LedgerJournal.readAll(directory, 0)));
+    }
+    
+    @Test
+    void replayStopsAtCorruptRecord() throws IOException {
+        write(1, 5, Long.MAX_VALUE);
+        Path segment = segments().get(0);
+        byte[] data = Files.readAllBytes(segment);
+        // All five records have the same length; flip a byte inside the amount of the third
+        int recordLength = data.length / 5;
+        data[2 * recordLength + 4 + 20] ^= 0x01;
+        Files.write(segment, data);
+        
+        assertEquals(List.of(1L, 2L), sequences(LedgerJournal.readAll(directory, 0)));
+    }
+    
+    @Test
+    void replayStopsAtImpossibleRecordLength() throws IOException {
+        write(1, 3, Long.MAX_VALUE);
+        Path segment = segments().get(0);
+        byte[] data = Files.readAllBytes(segment);
+        int recordLength = data.length / 3;
+        data[recordLength] = (byte) 0x7f;
+        Files.write(segment, data);
+        
+        assertEquals(List.of(1L), sequences(LedgerJournal.readAll(directory, 0)));
+    }
+    
+    private void write(long firstSequence, long lastSequence, long segmentBytes) throws IOException {
+        try (LedgerJournal journal = new LedgerJournal(directory, 0, false, segmentBytes)) {
+            for (long sequence = firstSequence; sequence <= lastSequence; sequence++) {
+                journal.append(new LedgerEntry(0, sequence, 1_700_000_000_000L + sequence, "ACC001", "ACC002",
+                        100L + sequence));
+                journal.flush();
+            }
+        }
+    }
+    
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+    
+    private static List<Long> sequences(List<LedgerEntry> entries) {
+        List<Long> sequences = new ArrayList<>(entries.size());
+        for (LedgerEntry entry : entries) {
+            sequences.add(entry.getSequence());
+        }
+        return sequences;
+    }
+}
+
+// LedgerEngineRecoveryTest.java
+package com.example.banking.ledger;
+
+import com.example.banking.config.BankingProperties;
+import com.example.banking.entity.Account;
+import com.example.banking.entity.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerEngineRecoveryTest {
+    
+    private static final long INITIAL_BALANCE = 100_000L;
+    
+    @TempDir
+    Path journalDirectory;
+    
+    private final InMemoryLedgerStore store = new InMemoryLedgerStore();
+    private LedgerEngine engine;
+    
+    @AfterEach
+    void stopEngine() {
+        if (engine != null) {
+            engine.stop();
+        }
+    }
+    
+    @Test
+    void replaySkipsEntriesAtOrBelowCheckpoint() throws Exception {
+        store.addAccount(1L, "ACC001", INITIAL_BALANCE);
+        store.addAccount(2L, "ACC002", INITIAL_BALANCE);
+        try (LedgerJournal journal = new LedgerJournal(journalDirectory, 0, false, Long.MAX_VALUE)) {
+            for (long sequence = 1; sequence <= 5; sequence++) {
+                journal.append(new LedgerEntry(0, sequence, System.currentTimeMillis(), "ACC001", "ACC002", 100L));
+            }
+            journal.flush();
+        }
+        // Entries 1 to 3 are already in the database balances
+        store.checkpoints.put(0, 3L);
+        
+        engine = start(1);
+        
+        assertEquals(List.of(4L, 5L), store.persistedSequences());
+        assertEquals(INITIAL_BALANCE - 200L, balance("ACC001"));
+        assertEquals(INITIAL_BALANCE + 200L, balance("ACC002"));
+        assertEquals(5L, store.checkpoints.get(0));
+        assertFalse(hasJournalFiles());
+        // New transfers carry on after the last replayed sequence
+        LedgerResult result = engine.transfer("ACC001", "ACC002", new BigDecimal("1.00")).get(5, TimeUnit.SECONDS);
+        assertEquals(LedgerStatus.COMMITTED, result.getStatus());
+        assertEquals(6L, result.getSequence());
+    }
+    
+    @Test
+    void replayOfEntriesAllAtOrBelowCheckpointChangesNothing() throws Exception {
+        store.addAccount(1L, "ACC001", INITIAL_BALANCE);
+        store.addAccount(2L, "ACC002", INITIAL_BALANCE);
+        try (LedgerJournal journal = new LedgerJournal(journalDirectory, 0, false, Long.MAX_VALUE)) {
+            for (long sequence = 1; sequence <= 3; sequence++) {
+                journal.append(new LedgerEntry(0, sequence, System.currentTimeMillis(), "ACC001", "ACC002", 100L));
+            }
+            journal.flush();
+        }
+        store.checkpoints.put(0, 3L);
+        
+        engine = start(1);
+        
+        assertEquals(List.of(), store.persistedSequences());
+        assertEquals(INITIAL_BALANCE, balance("ACC001"));
+        assertEquals(INITIAL_BALANCE, balance("ACC002"));
+        assertFalse(hasJournalFiles());
+    }
+    
+    @Test
+    void refusesToStartWithJournalForPartitionBeyondConfiguredCount() throws Exception {
+        store.addAccount(1L, "ACC001", INITIAL_BALANCE);
+        store.addAccount(2L, "ACC002", INITIAL_BALANCE);
+        try (LedgerJournal journal = new LedgerJournal(journalDirectory, 3, false, Long.MAX_VALUE)) {
+            journal.append(new LedgerEntry(3, 1L, System.currentTimeMillis(), "ACC001", "ACC002", 100L));
+            journal.flush();
+        }
+        
+        assertThrows(IllegalStateException.class, () -> start(2));
+        
+        assertEquals(List.of(), store.persistedSequences());
+        assertTrue(hasJournalFiles());
+    }
+    
+    // The database goes away part way through; the entries it never saw stay in the journal and
+    // are replayed on restart, so every committed transfer survives and no money is created or lost
+    @Test
+    void restartReplaysUnpersistedEntriesAndPreservesTotalBalance() throws Exception {
+        int accounts = 10;
+        for (int i = 1; i <= accounts; i++) {
+            store.addAccount(i, String.format("ACC%03d", i), INITIAL_BALANCE);
+        }
+        Map<String, Long> expected = new TreeMap<>(store.balances);
+        Random random = new Random(42);
+        
+        engine = start(4);
+        transfer(200, accounts, random, expected);
+        assertTrue(engine.awaitPersisted(10_000));
+        int persistedBeforeOutage = store.persisted.size();
+        
+        store.failWrites = true;
+        int unpersisted = transfer(300, accounts, random, expected);
+        engine.stop();
+        engine = null;
+        assertEquals(persistedBeforeOutage, store.persisted.size());
+        assertTrue(unpersisted > 0);
+        assertTrue(hasJournalFiles());
+        
+        store.failWrites = false;
+        engine = start(4);
+        
+        assertEquals(persistedBeforeOutage + unpersisted, store.persisted.size());
+        assertEquals(expected, store.balances);
+        long total = 0;
+        for (Map.Entry<String, Long> account : expected.entrySet()) {
+            assertEquals(account.getValue().longValue(), balance(account.getKey()));
+            total += balance(account.getKey());
+        }
+        assertEquals(accounts * INITIAL_BALANCE, total);
+        assertFalse(hasJournalFiles());
+    }
+    
+    @Test
+    void rejectsTransfersOnceWriteBehindDiesAndReplaysOnRestart() throws Exception {
+        store.addAccount(1L, "ACC001", INITIAL_BALANCE);
+        store.addAccount(2L, "ACC002", INITIAL_BALANCE);
+        engine = start(1);
+        store.fatal = new Error("Simulated fatal error");
+        
+        LedgerResult committed = engine.transfer("ACC001", "ACC002", new BigDecimal("1.00")).get(5, TimeUnit.SECONDS);
+        assertEquals(LedgerStatus.COMMITTED, committed.getStatus());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!engine.isWriteBehindFailed() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+        assertTrue(engine.isWriteBehindFailed());
+        LedgerResult rejected = engine.transfer("ACC001", "ACC002", new BigDecimal("1.00")).get(5, TimeUnit.SECONDS);
+        assertEquals(LedgerStatus.REJECTED, rejected.getStatus());
+        assertFalse(engine.awaitPersisted(10_000));
+        engine.stop();
+        engine = null;
+        assertTrue(hasJournalFiles());
+        
+        store.fatal = null;
+        engine = start(1);
+        
+        assertEquals(List.of(1L), store.persistedSequences());
+        assertEquals(INITIAL_BALANCE - 100L, balance("ACC001"));
+        assertEquals(INITIAL_BALANCE + 100L, balance("ACC002"));
+    }
+    
+    // Returns the number of committed transfers and applies them to the expected balances
+    private int transfer(int count, int accounts, Random random, Map<String, Long> expected) throws Exception {
+        int committed = 0;
+        for (int i = 0; i < count; i++) {
+            int from = 1 + random.nextInt(accounts);
+            int to = 1 + (from + random.nextInt(accounts - 1)) % accounts;
+            String fromAccount = String.format("ACC%03d", from);
+            String toAccount = String.format("ACC%03d", to);
+            long amountMinor = 1 + random.nextInt(20_000);
+            LedgerResult result = engine.transfer(fromAccount, toAccount, BigDecimal.valueOf(amountMinor, 2))
+                    .get(5, TimeUnit.SECONDS);
+            if (result.isCommitted()) {
+                expected.merge(fromAccount, -amountMinor, Long::sum);
+                expected.merge(toAccount, amountMinor, Long::sum);
+                committed++;
+            } else {
+                assertEquals(LedgerStatus.INSUFFICIENT_FUNDS, result.getStatus());
+            }
+        }
+        return committed;
+    }
+    
+    private LedgerEngine start(int partitions) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("banking.ledger.enabled", "true");
+        properties.put("banking.ledger.partitions", String.valueOf(partitions));
+        properties.put("banking.ledger.journalDir", journalDirectory.toString());
+        properties.put("banking.ledger.journalFsync", "false");
+        properties.put("banking.ledger.writeBehindMaxDelayMs", "5");
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        LedgerEngine started = new LedgerEngine(store, new BankingProperties(environment));
+        started.start();
+        return started;
+    }
+    
+    private long balance(String accountNumber) {
+        return engine.findAccount(accountNumber).orElseThrow().getBalance().getMinorUnits();
+    }
+    
+    private boolean hasJournalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            return files.findAny().isPresent();
+        }
+    }
+    
+    // Stands in for the database: applies entries the way LedgerStore.persist does, all or nothing
+    static class InMemoryLedgerStore extends LedgerStore {
+        
+        final Map<String, Long> balances = new TreeMap<>();
+        final Map<String, Long> ids = new HashMap<>();
+        final Map<Integer, Long> checkpoints = new HashMap<>();
+        final List<LedgerEntry> persisted = new ArrayList<>();
+        volatile boolean failWrites;
+        volatile Error fatal;
+        
+        InMemoryLedgerStore() {
+            super(null, null, null);
+        }
+        
+        void addAccount(long id, String accountNumber, long balanceMinor) {
+            ids.put(accountNumber, id);
+            balances.put(accountNumber, balanceMinor);
+        }
+        
+        synchronized List<Long> persistedSequences() {
+            List<Long> sequences = new ArrayList<>();
+            for (LedgerEntry entry : persisted) {
+                sequences.add(entry.getSequence());
+            }
+            return sequences;
+        }
+        
+        @Override
+        public synchronized List<Account> loadAccounts() {
+            List<Account> accounts = new ArrayList<>();
+            for (Map.Entry<String, Long> balance : balances.entrySet()) {
+                Account account = new Account(balance.getKey(), "Owner " + balance.getKey(),
+                        Money.ofMinor(balance.getValue()));
+                account.setId(ids.get(balance.getKey()));
+                accounts.add(account);
+            }
+            return accounts;
+        }
+        
+        @Override
+        public synchronized Map<Integer, Long> loadCheckpoints() {
+            return new HashMap<>(checkpoints);
+        }
+        
+        @Override
+        public synchronized void persist(List<LedgerEntry> entries) {
+            if (fatal != null) {
+                throw fatal;
+            }
+            if (failWrites) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            for (LedgerEntry entry : entries) {
+                balances.merge(entry.getFromAccount(), -entry.getAmountMinor(), Long::sum);
+                balances.merge(entry.getToAccount(), entry.getAmountMinor(), Long::sum);
+                checkpoints.merge(entry.getPartition(), entry.getSequence(), Math::max);
+                persisted.add(entry);
+            }
+        }
+    }
+}
+
 // database.properties
 jdbc.driverClassName=com.mysql.cj.jdbc.Driver
 jdbc.url=jdbc:mysql://localhost:3306/banking_db?createDatabaseIfNotExist=true&useSSL=false
 jdbc.username=root
 jdbc.password=password
+jdbc.pool.minIdle=5
+jdbc.pool.maxSize=20
+jdbc.pool.acquireTimeoutMs=3000
+jdbc.pool.idleTimeoutMs=600000
+jdbc.pool.maxLifetimeMs=1800000
+jdbc.pool.leakDetectionThresholdMs=0
+jdbc.pool.statementCacheSize=250
+jdbc.pool.statementCacheSqlLimit=2048
 hibernate.dialect=org.hibernate.dialect.MySQL8Dialect
-hibernate.show_sql=true
-hibernate.format_sql=true
+hibernate.show_sql=false
+hibernate.format_sql=false
 hibernate.hbm2ddl.auto=create-drop
+hibernate.jdbc.batch_size=50
+hibernate.cache.use_second_level_cache=true
+hibernate.generate_statistics=true
+hibernate.cache.account.maxEntries=10000
+hibernate.cache.account.ttlSeconds=300
+banking.transfer.locking=PESSIMISTIC
+banking.transfer.maxAttempts=5
+banking.transfer.backoffInitialMs=10
+banking.transfer.backoffMaxMs=200
+banking.batch.chunkSize=500
+banking.history.maxPageSize=500
+banking.history.fetchSize=500
+banking.ledger.enabled=false
+banking.ledger.partitions=4
+banking.ledger.ringBufferSize=8192
+banking.ledger.submitTimeoutMs=1000
+banking.ledger.journalDir=ledger-journal
+banking.ledger.journalFsync=true
+banking.ledger.journalSegmentBytes=67108864
+banking.ledger.writeBehindBatchSize=500
+banking.ledger.writeBehindQueueSize=65536
+banking.ledger.writeBehindMaxDelayMs=50
+banking.audit.enabled=true
+banking.audit.queueSize=10000
+banking.audit.batchSize=500
+banking.audit.maxDelayMs=100
+banking.audit.overflow=DROP
+banking.audit.blockTimeoutMs=50
+banking.metrics.log.enabled=true
+banking.metrics.log.intervalSeconds=60
+banking.metrics.jmx.enabled=true
+banking.metrics.jmx.objectName=com.example.banking:type=Metrics
+banking.async.executor=PLATFORM
+banking.async.maxInFlight=20
+banking.async.admission=QUEUE
+banking.async.queueSize=1000
+banking.async.shutdownTimeoutMs=30000
+banking.cache.enabled=true
+banking.cache.maxEntries=10000
+banking.cache.ttlSeconds=30
+banking.archive.enabled=false
+banking.archive.horizonDays=90
+banking.archive.chunkSize=1000
+banking.archive.intervalMinutes=60
+# Snapshot watermarks rely on transaction ids increasing with time: enable with one writing instance only
+banking.snapshot.enabled=false
+banking.snapshot.intervalMinutes=1440
+banking.snapshot.settleSeconds=60
+banking.reconcile.partitions=16
+banking.reconcile.parallelism=4
+banking.reconcile.pageSize=1000
+banking.sql.log.enabled=true
+banking.sql.slowThresholdMs=100
+banking.sql.sampleRate=0.0
+banking.sql.queueSize=1000
+banking.sql.topN=10
+banking.startup.backgroundBootstrap=true
+banking.startup.report.enabled=true
+banking.startup.report.topN=10
 
 // pom.xml
 <?xml version="1.0" encoding="UTF-8"?>
@@ -589,6 +8795,9 @@ hibernate.hbm2ddl.auto=create-drop
         <spring.version>5.3.25</spring.version>
         <hibernate.version>5.6.15.Final</hibernate.version>
         <mysql.version>8.0.32</mysql.version>
+        <hikaricp.version>5.0.1</hikaricp.version>
+        <ehcache.version>3.10.8</ehcache.version>
+        <junit.version>5.9.3</junit.version>
     </properties>
 
     <dependencies>
@@ -626,5 +8835,53 @@ hibernate.hbm2ddl.auto=create-drop
             <artifactId>mysql-connector-java</artifactId>
             <version>${mysql.version}</version>
         </dependency>
+        
+        <!-- HikariCP Connection Pool -->
+        <dependency>
+            <groupId>com.zaxxer</groupId>
+            <artifactId>HikariCP</artifactId>
+            <version>${hikaricp.version}</version>
+        </dependency>
+        
+        <!-- Hibernate JCache second-level cache with Ehcache -->
+        <dependency>
+            <groupId>org.hibernate</groupId>
+            <artifactId>hibernate-jcache</artifactId>
+            <version>${hibernate.version}</version>
+        </dependency>
+        <dependency>
+            <groupId>org.ehcache</groupId>
+            <artifactId>ehcache</artifactId>
+            <version>${ehcache.version}</version>
+            <!-- Caches are configured programmatically; JAXB is only needed for XML configuration -->
+            <exclusions>
+                <exclusion>
+                    <groupId>org.glassfish.jaxb</groupId>
+                    <artifactId>jaxb-runtime</artifactId>
+                </exclusion>
+                <exclusion>
+                    <groupId>javax.xml.bind</groupId>
+                    <artifactId>jaxb-api</artifactId>
+                </exclusion>
+            </exclusions>
+        </dependency>
+        
+        <!-- JUnit 5 -->
+        <dependency>
+            <groupId>org.junit.jupiter</groupId>
+            <artifactId>junit-jupiter</artifactId>
+            <version>${junit.version}</version>
+            <scope>test</scope>
+        </dependency>
     </dependencies>
+    
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>org.apache.maven.plugins</groupId>
+                <artifactId>maven-surefire-plugin</artifactId>
+                <version>3.2.5</version>
+            </plugin>
+        </plugins>
+    </build>
 </project>
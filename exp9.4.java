@@ -0,0 +1,400 @@
+// BankingBenchmark.java
+package com.example.benchmarks;
+
+import com.example.banking.config.AppConfig;
+import com.example.banking.entity.Account;
+import com.example.banking.entity.Transaction;
+import com.example.banking.exception.AccountNotFoundException;
+import com.example.banking.exception.InsufficientFundsException;
+import com.example.banking.ledger.LedgerEngine;
+import com.example.banking.service.BankingService;
+import com.example.banking.service.Payout;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Boots the full banking context against an in-memory H2 database in MySQL mode. System
+// properties take precedence over database.properties, so everything else is production config.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankingBenchmark {
+    
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    
+    @Param({"100", "10000"})
+    public int accounts;
+    
+    // Transaction rows seeded before measuring; drives getAllTransactions
+    @Param({"100", "5000"})
+    public int history;
+    
+    @Param({"false", "true"})
+    public boolean ledger;
+    
+    private AnnotationConfigApplicationContext context;
+    private BankingService bankingService;
+    private String[] accountNumbers;
+    private Path journalDirectory;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        journalDirectory = Files.createTempDirectory("ledger-journal");
+        System.setProperty("jdbc.driverClassName", "org.h2.Driver");
+        System.setProperty("jdbc.url", "jdbc:h2:mem:banking-benchmark;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        System.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("hibernate.show_sql", "false");
+        System.setProperty("hibernate.format_sql", "false");
+        System.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        System.setProperty("banking.ledger.enabled", String.valueOf(ledger));
+        System.setProperty("banking.ledger.journalDir", journalDirectory.toString());
+        
+        context = new AnnotationConfigApplicationContext(AppConfig.class);
+        bankingService = context.getBean(BankingService.class);
+        
+        accountNumbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountNumbers[i] = String.format("BENCH%06d", i);
+            bankingService.createAccount(new Account(accountNumbers[i], "Benchmark " + i, INITIAL_BALANCE));
+        }
+        
+        // One batched disbursement is the cheapest way to seed the history
+        List<Payout> payouts = new ArrayList<>(history);
+        for (int i = 0; i < history; i++) {
+            payouts.add(new Payout(accountNumbers[1 + i % (accounts - 1)], AMOUNT));
+        }
+        bankingService.disburse(accountNumbers[0], payouts);
+        context.getBean(LedgerEngine.class).awaitPersisted(TimeUnit.MINUTES.toMillis(1));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        // Segments left behind when write-behind could not catch up, deepest paths first
+        if (!Files.exists(journalDirectory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(journalDirectory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+    
+    @Benchmark
+    public void transferMoney() throws InsufficientFundsException, AccountNotFoundException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        bankingService.transferMoney(accountNumbers[from], accountNumbers[to], AMOUNT);
+    }
+    
+    @Benchmark
+    public Account getAccountByNumber() throws AccountNotFoundException {
+        return bankingService.getAccountByNumber(accountNumbers[ThreadLocalRandom.current().nextInt(accounts)]);
+    }
+    
+    @Benchmark
+    public List<Transaction> getAllTransactions() {
+        return bankingService.getAllTransactions();
+    }
+}
+
+// StudentDaoBenchmark.java
+package com.example.benchmarks;
+
+import com.example.hibernate.BulkInsertResult;
+import com.example.hibernate.Student;
+import com.example.hibernate.StudentDao;
+import com.example.hibernate.StudentSummary;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// StudentDao CRUD against an in-memory H2 database; hibernate.cfg.xml is used as shipped
+// apart from the connection and schema settings overridden below
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentDaoBenchmark {
+    
+    private static final int BULK_ROWS = 1000;
+    private static final int PAGE_SIZE = 100;
+    
+    @Param({"100", "10000"})
+    public int students;
+    
+    private SessionFactory sessionFactory;
+    private StudentDao studentDao;
+    private int[] ids;
+    private PrintStream originalOut;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        // StudentDao prints a line per write; keep that out of the JMH console
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        sessionFactory = new Configuration().configure()
+                .setProperty("hibernate.connection.driver_class", "org.h2.Driver")
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:students-benchmark;DB_CLOSE_DELAY=-1;MODE=MySQL")
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+                .setProperty("hibernate.show_sql", "false")
+                .setProperty("hibernate.format_sql", "false")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .buildSessionFactory();
+        studentDao = new StudentDao(sessionFactory);
+        
+        List<Student> seed = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            seed.add(new Student("Student " + i, 18 + i % 10));
+        }
+        studentDao.saveAll(seed);
+        ids = seed.stream().mapToInt(Student::getId).toArray();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+        System.setOut(originalOut);
+    }
+    
+    @Benchmark
+    public Student saveStudent() {
+        Student student = new Student("New Student", 20);
+        studentDao.saveStudent(student);
+        return student;
+    }
+    
+    @Benchmark
+    public Student getStudentById() {
+        return studentDao.getStudentById(randomId());
+    }
+    
+    @Benchmark
+    public List<Student> getAllStudents() {
+        return studentDao.getAllStudents();
+    }
+    
+    // Keyset page from a random position, as entities and as projections
+    @Benchmark
+    public List<Student> getStudentsAfter() {
+        return studentDao.getStudentsAfter(randomId(), PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public List<StudentSummary> getStudentSummariesAfter() {
+        return studentDao.getStudentSummariesAfter(randomId(), PAGE_SIZE);
+    }
+    
+    // Whole table through the scrolling StatelessSession; compare with getAllStudents
+    @Benchmark
+    public long streamStudentSummaries() {
+        try (Stream<StudentSummary> summaries = studentDao.streamStudentSummaries()) {
+            return summaries.mapToLong(StudentSummary::getAge).sum();
+        }
+    }
+    
+    @Benchmark
+    public void updateStudent() {
+        Student student = new Student("Updated Student", 18 + ThreadLocalRandom.current().nextInt(10));
+        student.setId(randomId());
+        studentDao.updateStudent(student);
+    }
+    
+    // One StatelessSession chunk of BULK_ROWS JDBC-batched inserts; compare with BULK_ROWS x saveStudent
+    @Benchmark
+    @OperationsPerInvocation(BULK_ROWS)
+    public BulkInsertResult saveAllStudents() {
+        List<Student> batch = new ArrayList<>(BULK_ROWS);
+        for (int i = 0; i < BULK_ROWS; i++) {
+            batch.add(new Student("Bulk Student " + i, 18 + i % 10));
+        }
+        return studentDao.saveAll(batch);
+    }
+    
+    // Main's get, update, get-again sequence: three sessions, then one shared unit of work
+    @Benchmark
+    public Student readModifyWrite() {
+        int id = randomId();
+        Student student = studentDao.getStudentById(id);
+        student.setAge(18 + ThreadLocalRandom.current().nextInt(10));
+        studentDao.updateStudent(student);
+        return studentDao.getStudentById(id);
+    }
+    
+    @Benchmark
+    public Student readModifyWriteInUnitOfWork() {
+        int id = randomId();
+        return studentDao.inUnitOfWork(dao -> {
+            Student student = dao.getStudentById(id);
+            student.setAge(18 + ThreadLocalRandom.current().nextInt(10));
+            dao.updateStudent(student);
+            return dao.getStudentById(id);
+        });
+    }
+    
+    // Insert plus delete keeps the table at its seeded size
+    @Benchmark
+    public void saveThenDeleteStudent() {
+        Student student = new Student("Short-lived Student", 20);
+        studentDao.saveStudent(student);
+        studentDao.deleteStudent(student.getId());
+    }
+    
+    private int randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
+
+// BenchmarkMain.java
+package com.example.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+// Runs the benchmarks once per thread count and writes one JMH JSON result file per run:
+//   java -cp target/benchmarks.jar com.example.benchmarks.BenchmarkMain [include regex]
+// -Dbench.threads=1,4,16 picks the thread counts, -Dbench.resultDir the output directory.
+// For single ad-hoc runs use the JMH launcher: java -jar target/benchmarks.jar -h
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com\\.example\\.benchmarks\\..*";
+        File resultDirectory = new File(System.getProperty("bench.resultDir", "target/jmh"));
+        resultDirectory.mkdirs();
+        
+        for (String value : System.getProperty("bench.threads", "1,4,16").split(",")) {
+            int threads = Integer.parseInt(value.trim());
+            File result = new File(resultDirectory, "jmh-result-t" + threads + ".json");
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.getPath())
+                    .build();
+            new Runner(options).run();
+            System.out.println("Results written to " + result);
+        }
+    }
+}
+
+// pom.xml
+<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0"
+         xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
+    <modelVersion>4.0.0</modelVersion>
+    
+    <groupId>com.example</groupId>
+    <artifactId>banking-benchmarks</artifactId>
+    <version>1.0-SNAPSHOT</version>
+    
+    <properties>
+        <maven.compiler.source>11</maven.compiler.source>
+        <maven.compiler.target>11</maven.compiler.target>
+        <jmh.version>1.37</jmh.version>
+        <h2.version>2.1.214</h2.version>
+    </properties>
+    
+    <dependencies>
+        <!-- Projects under test; run mvn install in each of them first -->
+        <dependency>
+            <groupId>com.example</groupId>
+            <artifactId>spring-hibernate-banking</artifactId>
+            <version>1.0-SNAPSHOT</version>
+        </dependency>
+        <dependency>
+            <groupId>com.example</groupId>
+            <artifactId>hibernate-crud</artifactId>
+            <version>1.0-SNAPSHOT</version>
+        </dependency>
+        
+        <!-- Embedded database for benchmark runs -->
+        <dependency>
+            <groupId>com.h2database</groupId>
+            <artifactId>h2</artifactId>
+            <version>${h2.version}</version>
+        </dependency>
+        
+        <!-- JMH -->
+        <dependency>
+            <groupId>org.openjdk.jmh</groupId>
+            <artifactId>jmh-core</artifactId>
+            <version>${jmh.version}</version>
+        </dependency>
+        <dependency>
+            <groupId>org.openjdk.jmh</groupId>
+            <artifactId>jmh-generator-annprocess</artifactId>
+            <version>${jmh.version}</version>
+            <scope>provided</scope>
+        </dependency>
+    </dependencies>
+    
+    <build>
+        <plugins>
+            <!-- Self-contained target/benchmarks.jar with the JMH launcher as entry point -->
+            <plugin>
+                <groupId>org.apache.maven.plugins</groupId>
+                <artifactId>maven-shade-plugin</artifactId>
+                <version>3.5.1</version>
+                <executions>
+                    <execution>
+                        <phase>package</phase>
+                        <goals>
+                            <goal>shade</goal>
+                        </goals>
+                        <configuration>
+                            <finalName>benchmarks</finalName>
+                            <transformers>
+                                <transformer implementation="org.apache.maven.plugins.shade.resource.ManifestResourceTransformer">
+                                    <mainClass>org.openjdk.jmh.Main</mainClass>
+                                </transformer>
+                                <transformer implementation="org.apache.maven.plugins.shade.resource.ServicesResourceTransformer"/>
+                            </transformers>
+                            <filters>
+                                <filter>
+                                    <artifact>*:*</artifact>
+                                    <excludes>
+                                        <exclude>META-INF/*.SF</exclude>
+                                        <exclude>META-INF/*.DSA</exclude>
+                                        <exclude>META-INF/*.RSA</exclude>
+                                    </excludes>
+                                </filter>
+                            </filters>
+                        </configuration>
+                    </execution>
+                </executions>
+            </plugin>
+        </plugins>
+    </build>
+</project>